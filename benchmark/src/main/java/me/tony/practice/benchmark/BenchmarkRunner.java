@@ -0,0 +1,54 @@
+package me.tony.practice.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Takes the usual JMH command line, but writes JSON results
+ * to jmh-result-&lt;version&gt;.json unless -rf / -rff say otherwise, so runs of two
+ * releases can be diffed.
+ * <pre>
+ * mvn -pl benchmark -am package
+ * java -jar benchmark/target/benchmarks.jar -l
+ * java -jar benchmark/target/benchmarks.jar SelectDsp
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        // the listing options, as JMH's own Main handles them
+        if (cli.shouldHelp()) {
+            cli.showHelp();
+            return;
+        }
+        if (cli.shouldListProfilers()) {
+            cli.listProfilers();
+            return;
+        }
+        if (cli.shouldListResultFormats()) {
+            cli.listResultFormats();
+            return;
+        }
+        if (cli.shouldList() || cli.shouldListWithParams()) {
+            Runner runner = new Runner(cli);
+            if (cli.shouldList()) {
+                runner.list();
+            } else {
+                runner.listWithParams(cli);
+            }
+            return;
+        }
+        String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+        String defaultResult = "jmh-result-" + (version == null ? "dev" : version) + ".json";
+        Options options = new OptionsBuilder()
+                .parent(cli)
+                .resultFormat(cli.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(cli.getResult().orElse(defaultResult))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,62 @@
+package me.tony.practice.benchmark.weight;
+
+import me.tony.practice.common.weight.GuardedRules;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of flight windows and qps caps on WeightedSelector.selectDsp, one case per
+ * {@link GuardedRules.Guard}.
+ * <ul>
+ * <li>NONE: plain MIXED rules, no guards</li>
+ * <li>WINDOW: every exclusive rule inside an open flight window</li>
+ * <li>OPEN: every exclusive dsp capped at 1e8 qps, never reached here, so each admission is
+ * the pacer's CAS and nothing is turned down</li>
+ * <li>SATURATED: dsp a capped at 1000 qps, so most of its draws are turned down and redrawn</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PacingBenchmark {
+
+    @Param({"1000"})
+    int tags;
+
+    @Param({"NONE", "WINDOW", "OPEN", "SATURATED"})
+    GuardedRules.Guard guard;
+
+    GuardedRules rules;
+
+    @Setup
+    public void setup() {
+        rules = new GuardedRules(guard, tags);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next(int bound) {
+            int current = next;
+            next = current + 1 == bound ? 0 : current + 1;
+            return current;
+        }
+    }
+
+    @Benchmark
+    public List<String> single(Cursor cursor) {
+        return rules.selectDsp(cursor.next(tags));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<String> threads4(Cursor cursor) {
+        return rules.selectDsp(cursor.next(tags));
+    }
+}
@@ -0,0 +1,110 @@
+package me.tony.practice.common.distlock;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * lock/unlock round trips against an in-process {@link TestingServer}, one thread alone and
+ * four threads on the same lock path.
+ * <ul>
+ * <li>{@link ZkDistLock}: every thread has a lock and a client of its own, as separate processes
+ * would; every acquisition is a create, a getChildren and a delete, plus a watch for waiters</li>
+ * <li>{@link LeasedDistLock}: the threads share one lock and client, as threads of one JVM would;
+ * while they keep it busy, the lease is only given back once per term</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DistLockBenchmark {
+
+    TestingServer server;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new TestingServer();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Contender {
+        CuratorFramework client;
+        ZkDistLock lock;
+
+        @Setup
+        public void setup(DistLockBenchmark benchmark) {
+            client = CuratorFrameworkFactory.newClient(benchmark.server.getConnectString(), new RetryOneTime(100));
+            client.start();
+            lock = new ZkDistLock(client, "/locks/benchmark");
+        }
+
+        @TearDown
+        public void tearDown() {
+            client.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Jvm {
+        CuratorFramework client;
+        ScheduledExecutorService scheduler;
+        LeasedDistLock lock;
+
+        @Setup
+        public void setup(DistLockBenchmark benchmark) {
+            client = CuratorFrameworkFactory.newClient(benchmark.server.getConnectString(), new RetryOneTime(100));
+            client.start();
+            scheduler = Executors.newSingleThreadScheduledExecutor();
+            lock = new LeasedDistLock(client, "/locks/leased", scheduler, 100, 2000, 200, TimeUnit.MILLISECONDS);
+        }
+
+        @TearDown
+        public void tearDown() {
+            System.err.printf("%n%d acquisitions, %d leases%n", lock.localAcquisitions(), lock.remoteAcquisitions());
+            scheduler.shutdownNow();
+            client.close();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void uncontended(Contender contender) {
+        contender.lock.lock();
+        contender.lock.unlock();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void contended(Contender contender) {
+        contender.lock.lock();
+        contender.lock.unlock();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void leasedUncontended(Jvm jvm) {
+        jvm.lock.lock();
+        jvm.lock.unlock();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void leasedContended(Jvm jvm) {
+        jvm.lock.lock();
+        jvm.lock.unlock();
+    }
+}
@@ -0,0 +1,87 @@
+package me.tony.practice.common.distlock;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Four threads of one JVM locking random keys through a {@link DistLockManager#leased} manager
+ * of 256 stripes caching 64 handles, against an in-process {@link TestingServer}. Leases have a
+ * 100ms term, a 2s ttl and are renewed every 200ms.
+ * With few keys the threads mostly meet on a stripe whose lease is already held; with many,
+ * nearly every acquisition takes a lease of its own and handles keep being evicted.
+ * <ul>
+ * <li>lockOne: one key</li>
+ * <li>lockFour: {@link DistLockManager#tryLockAll} over four keys</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class DistLockManagerBenchmark {
+
+    @Param({"1", "64", "10000"})
+    int keys;
+
+    TestingServer server;
+    CuratorFramework client;
+    ScheduledExecutorService scheduler;
+    DistLockManager manager;
+    String[] names;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new TestingServer();
+        client = CuratorFrameworkFactory.newClient(server.getConnectString(), new RetryOneTime(100));
+        client.start();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        manager = DistLockManager.leased(client, "/locks/keys", 256, 64, scheduler, 100, 2000, 200, TimeUnit.MILLISECONDS);
+        names = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            names[i] = "user-" + i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        System.err.printf("%n%d keys: %d handles created, %d evicted%n", keys, manager.handlesCreated(), manager.handlesEvicted());
+        scheduler.shutdownNow();
+        client.close();
+        server.close();
+    }
+
+    private String randomKey() {
+        return names[ThreadLocalRandom.current().nextInt(names.length)];
+    }
+
+    @Benchmark
+    public void lockOne() {
+        Lock lock = manager.lock(randomKey());
+        lock.lock();
+        lock.unlock();
+    }
+
+    @Benchmark
+    public boolean lockFour() throws InterruptedException {
+        List<String> batch = Arrays.asList(randomKey(), randomKey(), randomKey(), randomKey());
+        if (manager.tryLockAll(batch, 10, TimeUnit.SECONDS)) {
+            manager.unlockAll(batch);
+            return true;
+        }
+        return false;
+    }
+}
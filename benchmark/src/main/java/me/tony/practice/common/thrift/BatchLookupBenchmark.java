@@ -0,0 +1,102 @@
+package me.tony.practice.common.thrift;
+
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TException;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.transport.TTransport;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving {@code keys} usercodes over loopback, one rpc per key against one batch rpc.
+ * A quarter of the usercodes have no user. Divide by {@code keys} for the cost per key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchLookupBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    int keys;
+
+    TServer server;
+    TTransport transport;
+    UserService.Client client;
+    List<String> usercodes;
+
+    @Setup
+    public void setup() throws Exception {
+        // libthrift 0.10 prints every reply's seqid to stdout, which JMH would forward line by line
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        UserServiceServer launcher = new UserServiceServer(UserServiceServer.Mode.THREADED_SELECTOR).port(ThriftTest.PORT + 10);
+        server = launcher.start();
+        transport = launcher.clientTransport("127.0.0.1");
+        transport.open();
+        client = new UserService.Client(launcher.clientProtocol(transport));
+        usercodes = new ArrayList<>(keys);
+        for (int i = 0; i < keys; i++) {
+            // 1001 to 1009 exist, 1010 to 1012 do not
+            usercodes.add(String.valueOf(1001 + i % 12));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        transport.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public Map<String, User> findEach() throws TException {
+        Map<String, User> users = new HashMap<>(keys * 2);
+        for (String usercode : usercodes) {
+            try {
+                users.put(usercode, client.findByUsercode(usercode));
+            } catch (TApplicationException e) {
+                // a null reply comes back as MISSING_RESULT
+                if (e.getType() != TApplicationException.MISSING_RESULT) {
+                    throw e;
+                }
+            }
+        }
+        return users;
+    }
+
+    @Benchmark
+    public Map<String, User> findBatch() throws TException {
+        return client.findByUsercodes(usercodes);
+    }
+
+    @Benchmark
+    public BitSet existEach() throws TException {
+        BitSet existing = new BitSet(keys);
+        for (int i = 0; i < keys; i++) {
+            if (client.exist(usercodes.get(i))) {
+                existing.set(i);
+            }
+        }
+        return existing;
+    }
+
+    @Benchmark
+    public BitSet existBatch() throws TException {
+        ByteBuffer reply = client.existAll(usercodes);
+        return UserServiceImpl.existing(reply);
+    }
+}
@@ -0,0 +1,84 @@
+package me.tony.practice.common.thrift;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UserStore#findByName} latency as the table grows, with every name shared by ten
+ * users, against the full scan UserServiceImpl used to run over a HashMap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class FindByNameBenchmark {
+
+    static final int PER_NAME = 10;
+
+    @Param({"10000", "100000", "1000000"})
+    int users;
+
+    UserStore store;
+    HashMap<String, User> map;
+    String[] names;
+
+    @Setup
+    public void setup() {
+        store = new UserStore(users);
+        map = new HashMap<>(users * 2);
+        names = new String[users / PER_NAME];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = String.format("name%07d", i);
+        }
+        for (int i = 0; i < users; i++) {
+            User user = new User(names[i % names.length], i % 2 == 0 ? Gender.MALE : Gender.FEMALE, String.valueOf(1000000 + i), i % 90);
+            store.add(user);
+            map.put(user.getUsercode(), user);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next(int bound) {
+            int current = next;
+            next = current + 1 == bound ? 0 : current + 1;
+            return current;
+        }
+    }
+
+    @Benchmark
+    public List<User> index(Cursor cursor) {
+        return store.findByName(names[cursor.next(names.length)]);
+    }
+
+    @Benchmark
+    public List<User> prefix(Cursor cursor) {
+        // names are fixed width, so a full name as prefix matches that name only
+        return store.findByNamePrefix(names[cursor.next(names.length)]);
+    }
+
+    @Benchmark
+    public List<User> ignoreCase(Cursor cursor) {
+        return store.findByNameIgnoreCase(names[cursor.next(names.length)]);
+    }
+
+    @Benchmark
+    public List<User> scan(Cursor cursor) {
+        String name = names[cursor.next(names.length)];
+        List<User> result = new ArrayList<>();
+        for (User user : map.values()) {
+            if (name.equals(user.getName())) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+}
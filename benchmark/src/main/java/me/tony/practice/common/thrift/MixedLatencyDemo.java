@@ -0,0 +1,191 @@
+package me.tony.practice.common.thrift;
+
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TException;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.transport.TTransport;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fast and slow lookups on one server at the same time. Usercode 1009 is made slow by sleeping
+ * in the handler, standing in for a lookup that misses to a database; the rest answer from memory.
+ * Reports fast and slow latency separately, plus how many calls were turned away as busy.
+ * <ul>
+ * <li>selector: {@link UserServiceServer.Mode#THREADED_SELECTOR} with no workers, the handler runs
+ * on the selector thread, which is where the old inline AsyncIface ended up too</li>
+ * <li>async: {@link UserServiceServer.Mode#ASYNC}, the selector only does IO</li>
+ * <li>async-bounded: the same with fewer in-flight calls allowed than there are connections</li>
+ * </ul>
+ * Args: fast connections, slow connections, seconds per run, slow lookup millis.
+ */
+public class MixedLatencyDemo {
+
+    static final String SLOW = "1009";
+    static final String[] FAST = {"1001", "1002", "1003", "1004", "1005", "1006", "1007", "1008"};
+
+    public static void main(String[] args) throws Exception {
+        int fast = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int slow = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        long slowMillis = args.length > 3 ? Long.parseLong(args[3]) : 20;
+        UserService.Iface handler = new SlowUserService(new UserServiceImpl(), slowMillis);
+        int port = ThriftTest.PORT + 30;
+        run("selector", new UserServiceServer(UserServiceServer.Mode.THREADED_SELECTOR)
+                .port(port).selectorThreads(1).workerThreads(0).handler(handler), fast, slow, seconds);
+        run("async", new UserServiceServer(UserServiceServer.Mode.ASYNC)
+                .port(port + 1).selectorThreads(1).workerThreads(slow + 2).handler(handler), fast, slow, seconds);
+        run("async-bounded", new UserServiceServer(UserServiceServer.Mode.ASYNC)
+                .port(port + 2).selectorThreads(1).workerThreads(slow + 2).maxInFlight(slow).handler(handler), fast, slow, seconds);
+    }
+
+    static void run(String name, UserServiceServer launcher, int fast, int slow, int seconds) throws Exception {
+        TServer server = launcher.start();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            Clients fastClients = new Clients(launcher, fast, false, deadline);
+            Clients slowClients = new Clients(launcher, slow, true, deadline);
+            UserServiceLoadGenerator.Result fastResult = fastClients.await();
+            UserServiceLoadGenerator.Result slowResult = slowClients.await();
+            // stderr, because libthrift 0.10 prints every reply's seqid to stdout
+            System.err.printf("%-13s fast: %7d calls p50 %6dus p99 %6dus | slow: %5d calls p50 %6dus p99 %6dus | busy: %d%n",
+                    name, fastResult.calls, fastResult.percentile(0.50) / 1000, fastResult.percentile(0.99) / 1000,
+                    slowResult.calls, slowResult.percentile(0.50) / 1000, slowResult.percentile(0.99) / 1000,
+                    fastClients.busy.sum() + slowClients.busy.sum());
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Closed-loop client threads, one connection each, sending either only slow or only fast lookups.
+     */
+    static final class Clients {
+        final long[][] samples;
+        final int[] counts;
+        final CountDownLatch done;
+        final LongAdder busy = new LongAdder();
+
+        Clients(final UserServiceServer launcher, int connections, final boolean slow, final long deadline) {
+            samples = new long[connections][];
+            counts = new int[connections];
+            done = new CountDownLatch(connections);
+            for (int i = 0; i < connections; i++) {
+                final int client = i;
+                Thread thread = new Thread(() -> {
+                    long[] latencies = new long[UserServiceLoadGenerator.MAX_SAMPLES];
+                    int count = 0;
+                    TTransport transport = launcher.clientTransport("127.0.0.1");
+                    try {
+                        transport.open();
+                        UserService.Client stub = new UserService.Client(launcher.clientProtocol(transport));
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        while (count < latencies.length) {
+                            long start = System.nanoTime();
+                            boolean served = true;
+                            try {
+                                stub.findByUsercode(slow ? SLOW : FAST[random.nextInt(FAST.length)]);
+                            } catch (TApplicationException e) {
+                                if (e.getType() != TApplicationException.INTERNAL_ERROR) {
+                                    throw e;
+                                }
+                                busy.increment();
+                                served = false;
+                            }
+                            long end = System.nanoTime();
+                            if (end - deadline > 0) {
+                                break;
+                            }
+                            if (served) {
+                                latencies[count++] = end - start;
+                            }
+                        }
+                    } catch (TException e) {
+                        e.printStackTrace();
+                    } finally {
+                        transport.close();
+                        samples[client] = latencies;
+                        counts[client] = count;
+                        done.countDown();
+                    }
+                }, (slow ? "slow-" : "fast-") + client);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        UserServiceLoadGenerator.Result await() throws InterruptedException {
+            done.await();
+            int total = 0;
+            for (int count : counts) {
+                total += count;
+            }
+            long[] merged = new long[total];
+            int offset = 0;
+            for (int i = 0; i < counts.length; i++) {
+                System.arraycopy(samples[i], 0, merged, offset, counts[i]);
+                offset += counts[i];
+            }
+            Arrays.sort(merged);
+            return new UserServiceLoadGenerator.Result(merged);
+        }
+    }
+
+    /**
+     * Sleeps before answering for {@link #SLOW}.
+     */
+    static final class SlowUserService implements UserService.Iface {
+        private final UserService.Iface delegate;
+        private final long millis;
+
+        SlowUserService(UserService.Iface delegate, long millis) {
+            this.delegate = delegate;
+            this.millis = millis;
+        }
+
+        private void stall(String usercode) throws TException {
+            if (SLOW.equals(usercode)) {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TException(e);
+                }
+            }
+        }
+
+        @Override
+        public User findByUsercode(String usercode) throws TException {
+            stall(usercode);
+            return delegate.findByUsercode(usercode);
+        }
+
+        @Override
+        public boolean exist(String usercode) throws TException {
+            stall(usercode);
+            return delegate.exist(usercode);
+        }
+
+        @Override
+        public List<User> findByName(String name) throws TException {
+            return delegate.findByName(name);
+        }
+
+        @Override
+        public Map<String, User> findByUsercodes(List<String> usercodes) throws TException {
+            return delegate.findByUsercodes(usercodes);
+        }
+
+        @Override
+        public ByteBuffer existAll(List<String> usercodes) throws TException {
+            return delegate.existAll(usercodes);
+        }
+    }
+}
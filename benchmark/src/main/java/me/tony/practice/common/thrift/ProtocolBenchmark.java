@@ -0,0 +1,137 @@
+package me.tony.practice.common.thrift;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips over loopback for each protocol and framing, against the blocking
+ * thread-per-connection server so that pooled framing applies to both ends.
+ * Run with {@code -prof gc} for allocation per call; client bytes on the wire per call are
+ * printed at the end of each trial.
+ * <ul>
+ * <li>findOne: one {@link User}</li>
+ * <li>findMany: 100 usercodes, 75 of them with a user</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProtocolBenchmark {
+
+    @Param({"BINARY", "COMPACT"})
+    UserServiceServer.Protocol protocol;
+
+    @Param({"FRAMED", "POOLED"})
+    UserServiceServer.Framing framing;
+
+    TServer server;
+    Metered socket;
+    TTransport transport;
+    UserService.Client client;
+    List<String> usercodes;
+    long calls;
+
+    @Setup
+    public void setup() throws Exception {
+        // libthrift 0.10 prints every reply's seqid to stdout, which JMH would forward line by line
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        UserServiceServer launcher = new UserServiceServer(UserServiceServer.Mode.THREAD_PER_CONNECTION)
+                .port(ThriftTest.PORT + 20)
+                .protocol(protocol)
+                .framing(framing);
+        server = launcher.start();
+        socket = new Metered(new TSocket("127.0.0.1", ThriftTest.PORT + 20));
+        transport = launcher.clientTransport(socket);
+        transport.open();
+        client = new UserService.Client(launcher.clientProtocol(transport));
+        usercodes = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++) {
+            // 1001 to 1009 exist, 1010 to 1012 do not
+            usercodes.add(String.valueOf(1001 + i % 12));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.err.printf("%n%s %s: %d bytes sent, %d bytes received per call%n",
+                protocol, framing, socket.written / calls, socket.read / calls);
+        transport.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public User findOne() throws TException {
+        calls++;
+        return client.findByUsercode("1001");
+    }
+
+    @Benchmark
+    public Map<String, User> findMany() throws TException {
+        calls++;
+        return client.findByUsercodes(usercodes);
+    }
+
+    /**
+     * Counts what goes through the socket, below the framing.
+     */
+    static final class Metered extends TTransport {
+        private final TTransport socket;
+        long read;
+        long written;
+
+        Metered(TTransport socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return socket.isOpen();
+        }
+
+        @Override
+        public void open() throws TTransportException {
+            socket.open();
+        }
+
+        @Override
+        public void close() {
+            socket.close();
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws TTransportException {
+            int got = socket.read(buf, off, len);
+            read += got;
+            return got;
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) throws TTransportException {
+            socket.write(buf, off, len);
+            written += len;
+        }
+
+        @Override
+        public void flush() throws TTransportException {
+            socket.flush();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package me.tony.practice.common.thrift;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TIOStreamTransport;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm start of a {@link UserStore} from disk: a {@link UserSnapshot} against the same users
+ * written as a count followed by one binary protocol {@link User} after another, read back and
+ * added one at a time. Both files sit in the page cache after the first iteration, so this
+ * measures decoding and index building rather than the disk.
+ * Divide by {@code users} for the cost per user; it should stay flat as the table grows.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class SnapshotLoadBenchmark {
+
+    @Param({"100000", "1000000"})
+    int users;
+
+    Path snapshot;
+    Path thrift;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        UserStore store = new UserStore(users);
+        String[] names = new String[Math.max(1, users / 10)];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = String.format("name%07d", i);
+        }
+        snapshot = Files.createTempFile("users", ".snapshot");
+        thrift = Files.createTempFile("users", ".thrift");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(thrift), 1 << 16)) {
+            TProtocol protocol = new TBinaryProtocol(new TIOStreamTransport(out));
+            protocol.writeI32(users);
+            for (int i = 0; i < users; i++) {
+                User user = new User(names[i % names.length], i % 2 == 0 ? Gender.MALE : Gender.FEMALE, String.valueOf(1000000 + i), i % 90);
+                store.add(user);
+                user.write(protocol);
+            }
+        }
+        UserSnapshot.write(store, snapshot);
+        System.err.printf("%n%d users: snapshot %d bytes, thrift %d bytes%n", users, Files.size(snapshot), Files.size(thrift));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(thrift);
+    }
+
+    @Benchmark
+    public UserStore snapshot() throws IOException {
+        return UserSnapshot.load(snapshot);
+    }
+
+    @Benchmark
+    public UserStore snapshotOneThread() throws IOException {
+        return UserSnapshot.load(snapshot, 1);
+    }
+
+    @Benchmark
+    public UserStore thriftPerUser() throws IOException, TException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(thrift), 1 << 16)) {
+            TProtocol protocol = new TBinaryProtocol(new TIOStreamTransport(in));
+            int count = protocol.readI32();
+            UserStore store = new UserStore(count);
+            for (int i = 0; i < count; i++) {
+                User user = new User();
+                user.read(protocol);
+                store.add(user);
+            }
+            return store;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package me.tony.practice.common.thrift;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.transport.TTransport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop load against each {@link UserServiceServer.Mode}: every client thread owns one
+ * connection and sends findByUsercode back to back. Reports throughput, p50 and p99.
+ * Not a JMH suite, since the interesting part is the server's threading rather than the call.
+ * <p>
+ * Args: connections, seconds per mode, then optionally the modes to run (all by default).
+ */
+public class UserServiceLoadGenerator {
+
+    // per client thread, enough for a few seconds of loopback calls
+    static final int MAX_SAMPLES = 1 << 20;
+    static final String[] USERCODES = {"1001", "1002", "1003", "1004", "1005", "1006", "1007", "1008", "1009"};
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        List<UserServiceServer.Mode> modes = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            modes.add(UserServiceServer.Mode.valueOf(args[i]));
+        }
+        if (modes.isEmpty()) {
+            modes.addAll(Arrays.asList(UserServiceServer.Mode.values()));
+        }
+        for (UserServiceServer.Mode mode : modes) {
+            // a port per mode, so a run never waits on the previous mode's sockets
+            UserServiceServer launcher = new UserServiceServer(mode).port(ThriftTest.PORT + 1 + mode.ordinal());
+            TServer server = launcher.start();
+            try {
+                run(launcher, connections, TimeUnit.SECONDS.toNanos(1));
+                Result result = run(launcher, connections, TimeUnit.SECONDS.toNanos(seconds));
+                // stderr, because libthrift 0.10 prints every reply's seqid to stdout
+                System.err.printf("mode: %s, connections: %d, calls: %d, qps: %d, p50: %dus, p99: %dus%n",
+                        mode, connections, result.calls, (long) (result.calls / (double) seconds),
+                        result.percentile(0.50) / 1000, result.percentile(0.99) / 1000);
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    static Result run(final UserServiceServer launcher, int connections, long nanos) throws InterruptedException {
+        final long deadline = System.nanoTime() + nanos;
+        final long[][] samples = new long[connections][];
+        final int[] counts = new int[connections];
+        final CountDownLatch done = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            final int client = i;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long[] latencies = new long[MAX_SAMPLES];
+                    int count = 0;
+                    TTransport transport = launcher.clientTransport("127.0.0.1");
+                    try {
+                        transport.open();
+                        UserService.Client stub = new UserService.Client(launcher.clientProtocol(transport));
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        while (count < latencies.length) {
+                            long start = System.nanoTime();
+                            stub.findByUsercode(USERCODES[random.nextInt(USERCODES.length)]);
+                            long end = System.nanoTime();
+                            // a call still in flight at the deadline does not count
+                            if (end - deadline > 0) {
+                                break;
+                            }
+                            latencies[count++] = end - start;
+                        }
+                    } catch (TException e) {
+                        e.printStackTrace();
+                    } finally {
+                        transport.close();
+                        samples[client] = latencies;
+                        counts[client] = count;
+                        done.countDown();
+                    }
+                }
+            }, "load-" + client);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        long[] merged = new long[total];
+        int offset = 0;
+        for (int i = 0; i < connections; i++) {
+            System.arraycopy(samples[i], 0, merged, offset, counts[i]);
+            offset += counts[i];
+        }
+        Arrays.sort(merged);
+        return new Result(merged);
+    }
+
+    static final class Result {
+        final long[] sorted;
+        final int calls;
+
+        Result(long[] sorted) {
+            this.sorted = sorted;
+            this.calls = sorted.length;
+        }
+
+        /**
+         * @return latency in nanoseconds, 0 if nothing completed
+         */
+        long percentile(double p) {
+            if (calls == 0) {
+                return 0;
+            }
+            return sorted[Math.min(calls - 1, (int) Math.ceil(p * calls) - 1)];
+        }
+    }
+}
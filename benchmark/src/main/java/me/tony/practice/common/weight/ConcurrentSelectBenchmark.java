@@ -0,0 +1,90 @@
+package me.tony.practice.common.weight;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of one shared {@link WeightedSelector} from 1 to 16 threads, for every random source.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentSelectBenchmark {
+
+    @Param({"1000"})
+    int tags;
+
+    @Param({"threadLocal", "splittable", "shared"})
+    String random;
+
+    WeightedSelector selector;
+    int[] ids;
+
+    @Setup
+    public void setup() {
+        RandomSource source;
+        switch (random) {
+            case "threadLocal":
+                source = RandomSource.threadLocal();
+                break;
+            case "splittable":
+                source = RandomSource.splittable(42);
+                break;
+            default:
+                source = new Random()::nextDouble;
+        }
+        selector = new WeightedSelector(source);
+        selector.refresh(RuleShape.MIXED.rules(tags));
+        ids = new int[tags];
+        for (int i = 0; i < tags; i++) {
+            ids[i] = selector.tagId(RuleShape.tagId(i));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next(int bound) {
+            int current = next;
+            next = current + 1 == bound ? 0 : current + 1;
+            return current;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> threads1(Cursor cursor) {
+        return selector.selectDsp(ids[cursor.next(tags)]);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public List<String> threads2(Cursor cursor) {
+        return selector.selectDsp(ids[cursor.next(tags)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<String> threads4(Cursor cursor) {
+        return selector.selectDsp(ids[cursor.next(tags)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<String> threads8(Cursor cursor) {
+        return selector.selectDsp(ids[cursor.next(tags)]);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public List<String> threads16(Cursor cursor) {
+        return selector.selectDsp(ids[cursor.next(tags)]);
+    }
+}
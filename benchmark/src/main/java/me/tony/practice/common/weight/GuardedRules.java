@@ -0,0 +1,74 @@
+package me.tony.practice.common.weight;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link RuleShape#MIXED} with a guard on every exclusive rule, loaded into a selector, for
+ * benchmarks outside this package.
+ */
+public final class GuardedRules {
+
+    /**
+     * Far above any load a benchmark offers, yet a non-zero pacing interval, so every admission
+     * still goes through the pacer's CAS.
+     */
+    static final double UNREACHED_QPS = 1e8;
+
+    public enum Guard {
+        /**
+         * plain rules
+         */
+        NONE,
+        /**
+         * every exclusive rule inside an open flight window
+         */
+        WINDOW,
+        /**
+         * every exclusive dsp capped far above the offered load
+         */
+        OPEN,
+        /**
+         * dsp a capped at 1000 qps, so most of its draws are turned down and redrawn
+         */
+        SATURATED
+    }
+
+    private final WeightedSelector selector = new WeightedSelector();
+    private final int[] ids;
+
+    public GuardedRules(Guard guard, int tags) {
+        List<TrafficRule> rules = new ArrayList<>();
+        for (TrafficRule tr : RuleShape.MIXED.rules(tags)) {
+            if (tr.exclusive) {
+                switch (guard) {
+                    case WINDOW:
+                        tr.flight(System.currentTimeMillis() - 1, Long.MAX_VALUE - 1);
+                        break;
+                    case OPEN:
+                        tr.capped(UNREACHED_QPS);
+                        break;
+                    case SATURATED:
+                        if ("a".equals(tr.dspKey)) {
+                            tr.capped(1000);
+                        }
+                        break;
+                    default:
+                }
+            }
+            rules.add(tr);
+        }
+        selector.refresh(rules);
+        ids = new int[tags];
+        for (int i = 0; i < tags; i++) {
+            ids[i] = selector.tagId(RuleShape.tagId(i));
+        }
+    }
+
+    /**
+     * @param tag index of the tag, below the tag count
+     */
+    public List<String> selectDsp(int tag) {
+        return selector.selectDsp(ids[tag]);
+    }
+}
@@ -0,0 +1,36 @@
+package me.tony.practice.common.weight;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.*;
+
+/**
+ * The TreeMap based selection {@link WeightedSelector} used before the alias table, kept as a baseline.
+ */
+class NavigableMapSelector {
+    Map<String, NavigableMap<Double, List<String>>> configMap = Collections.emptyMap();
+    Random random = new Random();
+
+    void refresh(Map<String, List<Pair<Double, List<String>>>> dataMap) {
+        Map<String, NavigableMap<Double, List<String>>> tmpConfigMap = new HashMap<>();
+        dataMap.forEach((tagId, weightedTargets) -> {
+            NavigableMap<Double, List<String>> weightedMap = new TreeMap<>();
+            weightedTargets.forEach(pair -> {
+                double lastWeight = weightedMap.isEmpty() ? 0 : weightedMap.lastKey();
+                weightedMap.put(pair.getLeft() + lastWeight, pair.getRight());
+            });
+            tmpConfigMap.put(tagId, weightedMap);
+        });
+        configMap = tmpConfigMap;
+    }
+
+    List<String> selectDsp(String tagId) {
+        if (!configMap.containsKey(tagId)) {
+            return Collections.emptyList();
+        }
+        NavigableMap<Double, List<String>> weightedConfig = configMap.get(tagId);
+        double randomWeight = weightedConfig.lastKey() * random.nextDouble();
+        NavigableMap<Double, List<String>> tailMap = weightedConfig.tailMap(randomWeight, false);
+        return weightedConfig.get(tailMap.firstKey());
+    }
+}
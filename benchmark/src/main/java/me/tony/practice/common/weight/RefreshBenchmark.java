@@ -0,0 +1,76 @@
+package me.tony.practice.common.weight;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building a generation: grouping through {@link TrafficRuleService#service}, a full
+ * {@link WeightedSelector#refresh(List)}, a one rule delta refresh and a mapped rule table load.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class RefreshBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    int tags;
+
+    @Param({"MIXED", "EXCLUSIVE", "WIDE_POOL"})
+    RuleShape shape;
+
+    List<TrafficRule> rules;
+    WeightedSelector selector;
+    Path ruleTable;
+    int edits;
+
+    @Setup
+    public void setup() throws IOException {
+        rules = shape.rules(tags);
+        selector = new WeightedSelector();
+        selector.refresh(rules);
+        ruleTable = Files.createTempFile("rules", ".bin");
+        selector.service.write(rules, ruleTable);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        selector.close();
+        Files.deleteIfExists(ruleTable);
+    }
+
+    @Benchmark
+    public Map<String, List<Pair<Double, List<String>>>> service() {
+        return selector.service.service(rules);
+    }
+
+    @Benchmark
+    public long fullRefresh() {
+        selector.refresh(rules);
+        return selector.generation();
+    }
+
+    @Benchmark
+    public long deltaRefresh() {
+        String tagId = RuleShape.tagId(edits++ % tags);
+        double weight = (edits & 1) == 0 ? 0.1 : 0.2;
+        selector.refresh(Collections.singletonList(TrafficRule.exclusive(tagId, "a", weight)), Collections.emptyList());
+        return selector.generation();
+    }
+
+    @Benchmark
+    public long load() throws IOException {
+        selector.load(ruleTable);
+        return selector.generation();
+    }
+}
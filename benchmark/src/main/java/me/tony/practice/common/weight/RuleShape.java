@@ -0,0 +1,66 @@
+package me.tony.practice.common.weight;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static me.tony.practice.common.weight.TrafficRule.exclusive;
+import static me.tony.practice.common.weight.TrafficRule.nonexclusive;
+
+/**
+ * Rule sets shaped like the ones seen in production, generated for any tag cardinality.
+ */
+public enum RuleShape {
+
+    /**
+     * three exclusive dsps and a bidding pool of four, like WeightedSelector.main
+     */
+    MIXED {
+        @Override
+        void tag(String tagId, List<TrafficRule> out) {
+            out.add(exclusive(tagId, "a", 0.1));
+            out.add(exclusive(tagId, "b", 0.15));
+            out.add(nonexclusive(tagId, "c"));
+            out.add(nonexclusive(tagId, "d"));
+            out.add(nonexclusive(tagId, "e"));
+            out.add(nonexclusive(tagId, "f"));
+            out.add(exclusive(tagId, "g", 0.28));
+        }
+    },
+    /**
+     * sixteen exclusive dsps splitting all traffic
+     */
+    EXCLUSIVE {
+        @Override
+        void tag(String tagId, List<TrafficRule> out) {
+            for (int i = 0; i < 16; i++) {
+                out.add(exclusive(tagId, "dsp" + i, 1.0 / 16));
+            }
+        }
+    },
+    /**
+     * one exclusive dsp and a bidding pool of thirty two
+     */
+    WIDE_POOL {
+        @Override
+        void tag(String tagId, List<TrafficRule> out) {
+            out.add(exclusive(tagId, "a", 0.3));
+            for (int i = 0; i < 32; i++) {
+                out.add(nonexclusive(tagId, "dsp" + i));
+            }
+        }
+    };
+
+    abstract void tag(String tagId, List<TrafficRule> out);
+
+    static String tagId(int i) {
+        return "1.1.z." + i;
+    }
+
+    List<TrafficRule> rules(int tags) {
+        List<TrafficRule> out = new ArrayList<>();
+        for (int i = 0; i < tags; i++) {
+            tag(tagId(i), out);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,125 @@
+package me.tony.practice.common.weight;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single threaded cost of every {@link WeightedSelector#selectDsp} flavour, against the old NavigableMap lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SelectDspBenchmark {
+
+    static final int BATCH = 4;
+
+    @Param({"1", "1000", "100000"})
+    int tags;
+
+    @Param({"MIXED", "EXCLUSIVE", "WIDE_POOL"})
+    RuleShape shape;
+
+    /**
+     * ALL, TOP_&lt;k&gt; or SAMPLE_&lt;k&gt;, see {@link PoolPolicy}
+     */
+    @Param({"ALL", "SAMPLE_2"})
+    String pool;
+
+    WeightedSelector selector;
+    NavigableMapSelector navigable;
+    String[] tagIds;
+    int[] ids;
+    String[] keys;
+
+    @Setup
+    public void setup() {
+        List<TrafficRule> rules = shape.rules(tags);
+        selector = new WeightedSelector(RandomSource.threadLocal(), poolPolicy(pool));
+        selector.refresh(rules);
+        navigable = new NavigableMapSelector();
+        navigable.refresh(selector.service.service(rules));
+        tagIds = new String[tags];
+        ids = new int[tags];
+        for (int i = 0; i < tags; i++) {
+            tagIds[i] = RuleShape.tagId(i);
+            ids[i] = selector.tagId(tagIds[i]);
+        }
+        keys = new String[1024];
+        Random random = new Random(42);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+        }
+    }
+
+    static PoolPolicy poolPolicy(String pool) {
+        if (pool.startsWith("TOP_")) {
+            return PoolPolicy.topK(Integer.parseInt(pool.substring("TOP_".length())));
+        }
+        if (pool.startsWith("SAMPLE_")) {
+            return PoolPolicy.sampleK(Integer.parseInt(pool.substring("SAMPLE_".length())));
+        }
+        return PoolPolicy.ALL;
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        int[] batchIds = new int[BATCH];
+        int[] out = new int[BATCH];
+
+        int next(int bound) {
+            int current = next;
+            next = current + 1 == bound ? 0 : current + 1;
+            return current;
+        }
+    }
+
+    @Benchmark
+    public List<String> navigable(Cursor cursor) {
+        return navigable.selectDsp(tagIds[cursor.next(tags)]);
+    }
+
+    @Benchmark
+    public List<String> byString(Cursor cursor) {
+        return selector.selectDsp(tagIds[cursor.next(tags)]);
+    }
+
+    @Benchmark
+    public List<String> byId(Cursor cursor) {
+        return selector.selectDsp(ids[cursor.next(tags)]);
+    }
+
+    @Benchmark
+    public List<String> sticky(Cursor cursor) {
+        int i = cursor.next(tags);
+        return selector.selectDsp(tagIds[i], keys[i & (keys.length - 1)]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void single(Cursor cursor, Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(selector.selectDsp(ids[cursor.next(tags)]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void batch(Cursor cursor, Blackhole blackhole) {
+        int[] batchIds = cursor.batchIds;
+        for (int i = 0; i < BATCH; i++) {
+            batchIds[i] = ids[cursor.next(tags)];
+        }
+        Snapshot snapshot = selector.selectDsp(batchIds, cursor.out);
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(snapshot.targets(batchIds[i], cursor.out[i]));
+        }
+    }
+}
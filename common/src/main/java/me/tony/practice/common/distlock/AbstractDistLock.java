@@ -1,40 +1,126 @@
 package me.tony.practice.common.distlock;
 
+import me.tony.practice.common.Base;
+
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 
 /**
  * Created by tony on 2017/2/5.
+ * <p>
+ * The {@link Lock} side of a distributed lock: reentrancy per thread and the lock, tryLock and
+ * unlock variants. Subclasses only take and give back the lock itself, once per outermost
+ * lock/unlock pair of the thread holding it.
+ * Coordination failures surface as {@link DistLockException}, since {@link Lock} allows no
+ * checked exceptions. Conditions are not supported.
  */
-public abstract class AbstractDistLock implements Lock {
+public abstract class AbstractDistLock extends Base implements Lock {
+
+    private volatile Thread owner;
+    // only touched by the owner
+    private int holds;
+
+    /**
+     * Takes the lock for the calling thread.
+     *
+     * @param timeout how long to wait, 0 for not at all, negative for as long as it takes
+     * @return false if the timeout ran out first
+     */
+    protected abstract boolean acquire(long timeout, TimeUnit unit) throws Exception;
+
+    /**
+     * Gives back the lock taken by {@link #acquire}, on the thread that took it.
+     */
+    protected abstract void release() throws Exception;
+
     @Override
     public void lock() {
-
+        boolean interrupted = false;
+        while (true) {
+            try {
+                lockInterruptibly();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     @Override
     public void lockInterruptibly() throws InterruptedException {
-
+        tryLock(-1, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public boolean tryLock() {
-        return false;
+        try {
+            return tryLock(0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     @Override
     public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
-        return false;
+        Thread current = Thread.currentThread();
+        if (owner == current) {
+            holds++;
+            return true;
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        boolean acquired;
+        try {
+            acquired = acquire(time, unit);
+        } catch (InterruptedException | DistLockException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DistLockException("failed to acquire " + this, e);
+        }
+        if (acquired) {
+            owner = current;
+            holds = 1;
+        }
+        return acquired;
     }
 
     @Override
     public void unlock() {
+        if (owner != Thread.currentThread()) {
+            throw new IllegalMonitorStateException(this + " is not held by " + Thread.currentThread().getName());
+        }
+        if (--holds > 0) {
+            return;
+        }
+        owner = null;
+        try {
+            release();
+        } catch (DistLockException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DistLockException("failed to release " + this, e);
+        }
+    }
+
+    public boolean isHeldByCurrentThread() {
+        return owner == Thread.currentThread();
+    }
 
+    /**
+     * @return how many times the calling thread holds the lock, 0 if it does not
+     */
+    public int getHoldCount() {
+        return isHeldByCurrentThread() ? holds : 0;
     }
 
     @Override
     public Condition newCondition() {
-        return null;
+        throw new UnsupportedOperationException("conditions are not supported by " + getClass().getSimpleName());
     }
 }
@@ -0,0 +1,13 @@
+package me.tony.practice.common.distlock;
+
+/**
+ * The coordination service failed while taking or giving back a distributed lock.
+ */
+public class DistLockException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DistLockException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
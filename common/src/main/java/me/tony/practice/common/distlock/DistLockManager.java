@@ -0,0 +1,319 @@
+package me.tony.practice.common.distlock;
+
+import me.tony.practice.common.Base;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.utils.ZKPaths;
+
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+/**
+ * Distributed locks by key, for per-user or per-tag locking over any number of keys.
+ * <ul>
+ * <li>keys hash to one of a fixed number of stripes, and each stripe is one lock path, so the
+ * coordination service never holds more than that many lock paths however many keys there
+ * are; keys sharing a stripe also share the lock</li>
+ * <li>stripe handles are created on first use and cached in LRU order; past the limit, the
+ * least recently used handles that no thread holds or waits for are dropped</li>
+ * <li>{@link #tryLockAll} takes a set of keys stripe by stripe in ascending order, the same
+ * order in every JVM using the same root and stripe count, so two callers can never each hold
+ * a stripe the other waits for</li>
+ * </ul>
+ * Locking two keys of one stripe from one thread is reentrant on the stripe, not a deadlock.
+ */
+public class DistLockManager extends Base {
+
+    private final String root;
+    private final int stripes;
+    private final int maxHandles;
+    private final Function<String, ? extends AbstractDistLock> factory;
+    // stripe to handle, in access order; guarded by itself, as are the handles' pins
+    private final LinkedHashMap<Integer, Handle> handles = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * @param root       parent of the stripes' lock paths
+     * @param maxHandles stripe handles kept while nobody uses them
+     * @param factory    makes the lock for a stripe's path
+     */
+    public DistLockManager(String root, int stripes, int maxHandles, Function<String, ? extends AbstractDistLock> factory) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive");
+        }
+        this.root = root;
+        this.stripes = stripes;
+        this.maxHandles = maxHandles;
+        this.factory = factory;
+    }
+
+    /**
+     * Stripes of {@link LeasedDistLock}, so the threads of one JVM share a lease per stripe.
+     * The scheduler, term, ttl and renewal period are passed to every stripe's lock, see
+     * {@link LeasedDistLock#LeasedDistLock}.
+     */
+    public static DistLockManager leased(final CuratorFramework client, String root, int stripes, int maxHandles,
+                                         final ScheduledExecutorService scheduler,
+                                         final long term, final long ttl, final long renewPeriod, final TimeUnit unit) {
+        return new DistLockManager(root, stripes, maxHandles,
+                path -> new LeasedDistLock(client, path, scheduler, term, ttl, renewPeriod, unit));
+    }
+
+    private static final class Handle {
+        final AbstractDistLock lock;
+        // threads holding or waiting for the lock through the manager
+        int pins;
+
+        Handle(AbstractDistLock lock) {
+            this.lock = lock;
+        }
+    }
+
+    int stripe(String key) {
+        int h = key.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), stripes);
+    }
+
+    private Handle pin(int stripe) {
+        synchronized (handles) {
+            Handle handle = handles.get(stripe);
+            // pinned before evicting, or the new handle would be the first to go
+            if (handle == null) {
+                handle = new Handle(factory.apply(ZKPaths.makePath(root, "stripe-" + stripe)));
+                handle.pins++;
+                handles.put(stripe, handle);
+                created.increment();
+                evict();
+            } else {
+                handle.pins++;
+            }
+            return handle;
+        }
+    }
+
+    private void unpin(Handle handle) {
+        synchronized (handles) {
+            handle.pins--;
+            evict();
+        }
+    }
+
+    /**
+     * @return the cached handle of a stripe the current thread holds, which stays cached for
+     * as long as it is held
+     */
+    private Handle held(int stripe) {
+        Handle handle;
+        synchronized (handles) {
+            handle = handles.get(stripe);
+        }
+        if (handle == null || !handle.lock.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException("stripe " + stripe + " is not held by " + Thread.currentThread().getName());
+        }
+        return handle;
+    }
+
+    private void release(Handle handle) {
+        try {
+            handle.lock.unlock();
+        } finally {
+            unpin(handle);
+        }
+    }
+
+    private void evict() {
+        Iterator<Handle> eldest = handles.values().iterator();
+        while (handles.size() > maxHandles && eldest.hasNext()) {
+            if (eldest.next().pins == 0) {
+                eldest.remove();
+                evicted.increment();
+            }
+        }
+    }
+
+    /**
+     * @return the lock for the key, a light view that can be kept or thrown away
+     */
+    public Lock lock(String key) {
+        return new KeyLock(stripe(key));
+    }
+
+    private final class KeyLock implements Lock {
+        private final int stripe;
+        // the handle last locked through this view, so unlock need not look it up again
+        private volatile Handle last;
+
+        KeyLock(int stripe) {
+            this.stripe = stripe;
+        }
+
+        @Override
+        public void lock() {
+            Handle handle = pin(stripe);
+            boolean locked = false;
+            try {
+                handle.lock.lock();
+                locked = true;
+                last = handle;
+            } finally {
+                if (!locked) {
+                    unpin(handle);
+                }
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            tryLock(-1, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public boolean tryLock() {
+            Handle handle = pin(stripe);
+            boolean locked = false;
+            try {
+                locked = handle.lock.tryLock();
+                if (locked) {
+                    last = handle;
+                }
+                return locked;
+            } finally {
+                if (!locked) {
+                    unpin(handle);
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            Handle handle = pin(stripe);
+            boolean locked = false;
+            try {
+                if (time < 0) {
+                    handle.lock.lockInterruptibly();
+                    locked = true;
+                } else {
+                    locked = handle.lock.tryLock(time, unit);
+                }
+                if (locked) {
+                    last = handle;
+                }
+                return locked;
+            } finally {
+                if (!locked) {
+                    unpin(handle);
+                }
+            }
+        }
+
+        @Override
+        public void unlock() {
+            Handle handle = last;
+            // another thread's, or locked through another view of the key
+            if (handle == null || !handle.lock.isHeldByCurrentThread()) {
+                handle = held(stripe);
+            }
+            release(handle);
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("conditions are not supported by " + DistLockManager.class.getSimpleName());
+        }
+    }
+
+    /**
+     * Locks every key or none. Stripes are taken in ascending order, each at most once.
+     *
+     * @return false, holding none of them, if the timeout ran out first
+     */
+    public boolean tryLockAll(Collection<String> keys, long time, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(time);
+        int[] order = stripes(keys);
+        Handle[] taken = new Handle[order.length];
+        int count = 0;
+        try {
+            for (; count < order.length; count++) {
+                Handle handle = pin(order[count]);
+                boolean locked = false;
+                try {
+                    locked = handle.lock.tryLock(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } finally {
+                    if (!locked) {
+                        unpin(handle);
+                    }
+                }
+                if (!locked) {
+                    return false;
+                }
+                taken[count] = handle;
+            }
+            return true;
+        } finally {
+            if (count < order.length) {
+                release(taken, count);
+            }
+        }
+    }
+
+    /**
+     * Gives back what {@link #tryLockAll} took for the same keys. Held stripes stay cached,
+     * so their handles are found again by stripe.
+     */
+    public void unlockAll(Collection<String> keys) {
+        int[] order = stripes(keys);
+        Handle[] held = new Handle[order.length];
+        for (int i = 0; i < order.length; i++) {
+            held[i] = held(order[i]);
+        }
+        release(held, held.length);
+    }
+
+    private int[] stripes(Collection<String> keys) {
+        TreeSet<Integer> sorted = new TreeSet<>();
+        for (String key : keys) {
+            sorted.add(stripe(key));
+        }
+        int[] order = new int[sorted.size()];
+        int i = 0;
+        for (int stripe : sorted) {
+            order[i++] = stripe;
+        }
+        return order;
+    }
+
+    private void release(Handle[] taken, int count) {
+        // the reverse of the order they were taken in
+        for (int i = count - 1; i >= 0; i--) {
+            release(taken[i]);
+        }
+    }
+
+    /**
+     * @return stripe handles currently cached
+     */
+    public int handles() {
+        synchronized (handles) {
+            return handles.size();
+        }
+    }
+
+    public long handlesCreated() {
+        return created.sum();
+    }
+
+    public long handlesEvicted() {
+        return evicted.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "DistLockManager[" + root + ", " + stripes + " stripes]";
+    }
+}
@@ -0,0 +1,228 @@
+package me.tony.practice.common.distlock;
+
+import me.tony.practice.common.Base;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.test.TestingServer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.*;
+
+/**
+ * Against Curator's in-process {@link TestingServer}.
+ */
+public class DistLockManagerTest extends Base {
+
+    @Rule
+    public ZkTestServer zk = new ZkTestServer();
+
+    private CuratorFramework client;
+
+    @Before
+    public void setUp() {
+        client = zk.newClient();
+    }
+
+    private DistLockManager newManager(int stripes, int maxHandles) {
+        return DistLockManager.leased(client, "/locks/keys", stripes, maxHandles, zk.scheduler(),
+                100, 2000, 200, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return count keys that all fall on different stripes
+     */
+    private static List<String> distinctStripes(DistLockManager manager, int count) {
+        List<String> keys = new ArrayList<>();
+        List<Integer> seen = new ArrayList<>();
+        for (int i = 0; keys.size() < count; i++) {
+            String key = "user-" + i;
+            if (!seen.contains(manager.stripe(key))) {
+                seen.add(manager.stripe(key));
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    public void sameKeyExcludes() throws Exception {
+        DistLockManager manager = newManager(64, 16);
+        manager.lock("user-1").lock();
+        try {
+            assertFalse(runElsewhere(() -> manager.lock("user-1").tryLock()));
+        } finally {
+            manager.lock("user-1").unlock();
+        }
+        assertTrue(runElsewhere(() -> {
+            Lock lock = manager.lock("user-1");
+            boolean locked = lock.tryLock();
+            if (locked) {
+                lock.unlock();
+            }
+            return locked;
+        }));
+    }
+
+    @Test
+    public void otherStripesDoNotBlock() throws Exception {
+        DistLockManager manager = newManager(64, 16);
+        List<String> keys = distinctStripes(manager, 2);
+        manager.lock(keys.get(0)).lock();
+        try {
+            assertTrue(runElsewhere(() -> {
+                Lock lock = manager.lock(keys.get(1));
+                boolean locked = lock.tryLock();
+                if (locked) {
+                    lock.unlock();
+                }
+                return locked;
+            }));
+        } finally {
+            manager.lock(keys.get(0)).unlock();
+        }
+    }
+
+    @Test
+    public void idleHandlesAreEvictedHeldOnesKept() throws Exception {
+        DistLockManager manager = newManager(64, 2);
+        List<String> keys = distinctStripes(manager, 6);
+        Lock held = manager.lock(keys.get(0));
+        held.lock();
+        for (String key : keys.subList(1, keys.size())) {
+            Lock lock = manager.lock(key);
+            lock.lock();
+            lock.unlock();
+        }
+        assertEquals(2, manager.handles());
+        assertTrue(manager.handlesEvicted() >= 4);
+        // still the same handle, so still reentrant
+        assertTrue(held.tryLock());
+        held.unlock();
+        held.unlock();
+    }
+
+    /**
+     * Held stripes are pinned, so holding more of them than the cache keeps must not evict
+     * any, not even the one just created.
+     */
+    @Test
+    public void holdMoreStripesThanHandles() throws Exception {
+        DistLockManager manager = newManager(64, 1);
+        List<String> keys = distinctStripes(manager, 4);
+        Lock first = manager.lock(keys.get(0));
+        first.lock();
+        manager.lock(keys.get(1)).lock();
+        assertEquals(2, manager.handles());
+        // one through the view it was locked with, one through a fresh view
+        first.unlock();
+        manager.lock(keys.get(1)).unlock();
+        assertEquals(1, manager.handles());
+
+        assertTrue(manager.tryLockAll(keys, 10, TimeUnit.SECONDS));
+        assertEquals(keys.size(), manager.handles());
+        manager.unlockAll(keys);
+        assertEquals(1, manager.handles());
+        for (String key : keys) {
+            assertTrue(runElsewhere(() -> {
+                Lock lock = manager.lock(key);
+                boolean free = lock.tryLock();
+                if (free) {
+                    lock.unlock();
+                }
+                return free;
+            }));
+        }
+    }
+
+    /**
+     * Two threads lock the same keys listed in opposite orders; taken as listed, they would
+     * deadlock sooner or later.
+     */
+    @Test
+    public void tryLockAllInOrder() throws Exception {
+        final DistLockManager manager = newManager(64, 16);
+        final List<String> keys = distinctStripes(manager, 4);
+        final List<String> reversed = new ArrayList<>(keys);
+        Collections.reverse(reversed);
+        final List<List<String>> orders = Arrays.asList(keys, reversed);
+        final AtomicInteger failures = new AtomicInteger();
+        assertEquals(0, ZkTestServer.overlaps(orders.size(), 20, (thread, critical) -> {
+            List<String> order = orders.get(thread);
+            if (!manager.tryLockAll(order, 10, TimeUnit.SECONDS)) {
+                failures.incrementAndGet();
+                return;
+            }
+            try {
+                critical.run();
+            } finally {
+                manager.unlockAll(order);
+            }
+        }));
+        assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void tryLockAllTakesNoneOnTimeout() throws Exception {
+        final DistLockManager manager = newManager(64, 16);
+        final List<String> keys = distinctStripes(manager, 3);
+        // hold the highest stripe elsewhere, so the lower ones are taken first
+        String last = keys.get(0);
+        for (String key : keys) {
+            if (manager.stripe(key) > manager.stripe(last)) {
+                last = key;
+            }
+        }
+        Lock blocker = manager.lock(last);
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            blocker.lock();
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                blocker.unlock();
+            }
+        });
+        holder.start();
+        locked.await();
+        try {
+            assertFalse(manager.tryLockAll(keys, 300, TimeUnit.MILLISECONDS));
+            for (String key : keys) {
+                if (!key.equals(last)) {
+                    assertTrue(runElsewhere(() -> {
+                        Lock lock = manager.lock(key);
+                        boolean free = lock.tryLock();
+                        if (free) {
+                            lock.unlock();
+                        }
+                        return free;
+                    }));
+                }
+            }
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
+    private static boolean runElsewhere(Callable<Boolean> task) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(task).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package me.tony.practice.common.distlock;
+
+import org.apache.curator.framework.CuratorFramework;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A distributed lock that takes one ZooKeeper lock, the lease, for the whole JVM and lets local
+ * threads queue for it on a fair in-process lock. While the lease is held, handing the lock
+ * from one local thread to the next costs no round trip.
+ * <ul>
+ * <li>the lease is taken by the first local thread that needs it</li>
+ * <li>it is given back when the last local holder unlocks with nobody queued behind it, or
+ * once it has been held for longer than the lease term, so that other JVMs get their turn</li>
+ * <li>while held it is renewed in the background: the lock node is checked every renewal
+ * period, and a lease not confirmed within its ttl, or whose node is gone, counts as lost</li>
+ * <li>every acquisition gets a {@link #fencingToken()}, strictly larger than any before it on
+ * the same lock path, in this JVM or another</li>
+ * </ul>
+ * A lost lease cannot stop a holder that is already inside; pass the fencing token to whatever
+ * the lock protects so that it can turn away writes from an older holder.
+ * Share one instance per lock path within a JVM; two instances on the same path in one JVM
+ * would each take a lease of their own.
+ */
+public class LeasedDistLock extends AbstractDistLock {
+
+    private final ZkDistLock remote;
+    private final ReentrantLock local = new ReentrantLock(true);
+    private final ScheduledExecutorService scheduler;
+    private final long term;
+    private final long ttl;
+    private final long renewPeriod;
+
+    // guards the lease against the renewal task; the rest is only touched by the local holder
+    private final Object lease = new Object();
+    private boolean leased;
+    // bumped by every take, so a renewal can tell the lease it checked is still the current one
+    private long generation;
+    private ScheduledFuture<?> renewal;
+    private volatile boolean lost;
+    private volatile long validUntil;
+    private long leasedAt;
+    private long sequence;
+    private int handoffs;
+    private long token;
+
+    private final LongAdder remoteAcquisitions = new LongAdder();
+    private final LongAdder localAcquisitions = new LongAdder();
+
+    /**
+     * @param scheduler   runs the renewals, may be shared
+     * @param term        longest the JVM keeps the lease while local threads keep asking for it
+     * @param ttl         how long a confirmed lease is trusted without another confirmation
+     * @param renewPeriod time between confirmations, well below the ttl
+     */
+    public LeasedDistLock(CuratorFramework client, String path, ScheduledExecutorService scheduler,
+                          long term, long ttl, long renewPeriod, TimeUnit unit) {
+        this.remote = new ZkDistLock(client, path);
+        this.scheduler = scheduler;
+        this.term = unit.toNanos(term);
+        this.ttl = unit.toNanos(ttl);
+        this.renewPeriod = unit.toNanos(renewPeriod);
+    }
+
+    @Override
+    protected boolean acquire(long timeout, TimeUnit unit) throws Exception {
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(timeout, 0));
+        if (timeout < 0) {
+            local.lockInterruptibly();
+        } else if (!local.tryLock(timeout, unit)) {
+            return false;
+        }
+        boolean acquired = false;
+        try {
+            if (leased && lost) {
+                giveBack();
+            }
+            if (!leased) {
+                long remaining = timeout < 0 ? -1 : Math.max(0, deadline - System.nanoTime());
+                if (!remote.acquire(remaining, TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+                remoteAcquisitions.increment();
+                take();
+            }
+            localAcquisitions.increment();
+            token = sequence << 32 | ++handoffs;
+            acquired = true;
+            return true;
+        } finally {
+            if (!acquired) {
+                local.unlock();
+            }
+        }
+    }
+
+    @Override
+    protected void release() throws Exception {
+        try {
+            if (lost || !local.hasQueuedThreads() || System.nanoTime() - leasedAt - term >= 0) {
+                giveBack();
+            }
+        } finally {
+            local.unlock();
+        }
+    }
+
+    private void take() {
+        leasedAt = System.nanoTime();
+        sequence = remote.sequence();
+        handoffs = 0;
+        synchronized (lease) {
+            leased = true;
+            generation++;
+            lost = false;
+            validUntil = leasedAt + ttl;
+            renewal = scheduler.scheduleWithFixedDelay(this::renew, renewPeriod, renewPeriod, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void giveBack() throws Exception {
+        boolean wasLost;
+        synchronized (lease) {
+            renewal.cancel(false);
+            renewal = null;
+            leased = false;
+            wasLost = lost;
+        }
+        try {
+            remote.release();
+        } catch (DistLockException e) {
+            if (!wasLost) {
+                throw e;
+            }
+            // the node went with the lease, nothing left to give back
+        }
+    }
+
+    /**
+     * Checks the node outside the lease monitor, which take and giveBack need, so a slow
+     * ZooKeeper holds up only the renewal, then applies the answer if the lease is still the one
+     * that was checked.
+     */
+    private void renew() {
+        long checked;
+        synchronized (lease) {
+            if (!leased || lost) {
+                return;
+            }
+            checked = generation;
+        }
+        long checkedAt = System.nanoTime();
+        boolean held = false;
+        Exception failure = null;
+        try {
+            held = remote.stillHeld();
+        } catch (Exception e) {
+            failure = e;
+        }
+        synchronized (lease) {
+            if (!leased || lost || generation != checked) {
+                return;
+            }
+            if (held) {
+                // trusted from when it was asked, not from when the answer came
+                validUntil = checkedAt + ttl;
+            } else if (failure == null) {
+                logger.warn("{} lost its lease, the lock node is gone", this);
+                lost = true;
+            } else if (System.nanoTime() - validUntil >= 0) {
+                logger.warn("{} lost its lease, not confirmed within the ttl", this, failure);
+                lost = true;
+            }
+        }
+    }
+
+    /**
+     * @return the holder's token: the lock node's sequence in the high half, the local
+     * acquisitions within the lease in the low half
+     * @throws IllegalMonitorStateException if the calling thread does not hold the lock
+     */
+    public long fencingToken() {
+        if (!isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException(this + " is not held by " + Thread.currentThread().getName());
+        }
+        return token;
+    }
+
+    /**
+     * @return whether the lease was confirmed within the ttl and has not been found lost since
+     */
+    public boolean isLeaseValid() {
+        return !lost && System.nanoTime() - validUntil < 0;
+    }
+
+    /**
+     * @return leases taken so far, each one a ZooKeeper round trip or more
+     */
+    public long remoteAcquisitions() {
+        return remoteAcquisitions.sum();
+    }
+
+    /**
+     * @return acquisitions by local threads so far, leases included
+     */
+    public long localAcquisitions() {
+        return localAcquisitions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "LeasedDistLock[" + remote + "]";
+    }
+}
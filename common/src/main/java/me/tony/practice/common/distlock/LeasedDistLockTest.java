@@ -0,0 +1,130 @@
+package me.tony.practice.common.distlock;
+
+import me.tony.practice.common.Base;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.test.TestingServer;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Against Curator's in-process {@link TestingServer}; each {@link LeasedDistLock} gets a client
+ * of its own, standing in for a JVM.
+ */
+public class LeasedDistLockTest extends Base {
+
+    private static final String PATH = "/locks/leased";
+
+    @Rule
+    public ZkTestServer zk = new ZkTestServer();
+
+    private LeasedDistLock newLock(long termMillis) {
+        return new LeasedDistLock(zk.newClient(), PATH, zk.scheduler(), termMillis, 2000, 100, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Threads of two "JVMs" take turns; tokens have to grow with every acquisition, whichever
+     * JVM it happens in, and most acquisitions should be local hand-offs.
+     */
+    @Test
+    public void exclusiveWithGrowingTokens() throws Exception {
+        final LeasedDistLock[] locks = {newLock(50), newLock(50)};
+        final int threadsPerLock = 3;
+        final int rounds = 100;
+        final List<Long> tokens = new ArrayList<>();
+        assertEquals(0, ZkTestServer.overlaps(locks.length * threadsPerLock, rounds, (thread, critical) -> {
+            LeasedDistLock lock = locks[thread % locks.length];
+            lock.lock();
+            try {
+                critical.run();
+                synchronized (tokens) {
+                    tokens.add(lock.fencingToken());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }));
+        assertEquals(locks.length * threadsPerLock * rounds, tokens.size());
+        for (int i = 1; i < tokens.size(); i++) {
+            assertTrue("token " + i + " did not grow", tokens.get(i) > tokens.get(i - 1));
+        }
+        long remote = locks[0].remoteAcquisitions() + locks[1].remoteAcquisitions();
+        long local = locks[0].localAcquisitions() + locks[1].localAcquisitions();
+        logger.info("{} acquisitions, {} leases", local, remote);
+        assertTrue(remote < local);
+    }
+
+    @Test
+    public void leaseIsReleasedWhenIdle() throws Exception {
+        LeasedDistLock lock = newLock(10000);
+        lock.lock();
+        assertTrue(lock.isLeaseValid());
+        lock.unlock();
+        // nobody queued locally, so the lease went back at once
+        LeasedDistLock other = newLock(10000);
+        assertTrue(other.tryLock(1, TimeUnit.SECONDS));
+        other.unlock();
+    }
+
+    @Test
+    public void termLetsOtherJvmsIn() throws Exception {
+        final LeasedDistLock busy = newLock(200);
+        final AtomicBoolean stop = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Thread thread = new Thread(() -> {
+                while (!stop.get()) {
+                    busy.lock();
+                    busy.unlock();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        try {
+            Thread.sleep(100);
+            LeasedDistLock other = newLock(200);
+            assertTrue(other.tryLock(5, TimeUnit.SECONDS));
+            other.unlock();
+        } finally {
+            stop.set(true);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+    }
+
+    @Test
+    public void lostLeaseIsNoticedAndReplaced() throws Exception {
+        LeasedDistLock lock = newLock(10000);
+        lock.lock();
+        long before = lock.fencingToken();
+        // what an expired session would do to the lock node
+        CuratorFramework admin = zk.newClient();
+        for (String node : admin.getChildren().forPath(PATH)) {
+            admin.delete().forPath(PATH + "/" + node);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (lock.isLeaseValid() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(lock.isLeaseValid());
+        lock.unlock();
+        lock.lock();
+        assertTrue(lock.isLeaseValid());
+        assertTrue(lock.fencingToken() > before);
+        lock.unlock();
+        assertEquals(2, lock.remoteAcquisitions());
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void noTokenWithoutTheLock() {
+        newLock(100).fencingToken();
+    }
+}
@@ -0,0 +1,159 @@
+package me.tony.practice.common.distlock;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ZooKeeper lock over a Curator client, the usual recipe:
+ * <ul>
+ * <li>every contender creates an ephemeral sequential node under the lock path</li>
+ * <li>the lowest sequence holds the lock</li>
+ * <li>everyone else watches only the node right before its own, so a release wakes one
+ * waiter instead of all of them</li>
+ * </ul>
+ * A contender that gives up, times out or is interrupted deletes its node, so the one behind
+ * it moves up. Nodes are created with protection, so one created just before a connection loss
+ * is found again rather than left behind. The node is ephemeral: if the session expires while
+ * the lock is held, it is gone and someone else may take it; a holder that cares has to watch
+ * the client's connection state.
+ * Every thread, even within one JVM, queues with a node of its own.
+ */
+public class ZkDistLock extends AbstractDistLock {
+
+    static final String PREFIX = "lock-";
+    private static final int SEQUENCE_LENGTH = 10;
+    private static final Comparator<String> BY_SEQUENCE =
+            Comparator.comparing(name -> name.substring(name.length() - SEQUENCE_LENGTH));
+
+    private final CuratorFramework client;
+    private final String path;
+    // the holder's node; volatile since LeasedDistLock checks on it from its renewal thread
+    private volatile String node;
+
+    /**
+     * @param client a started client
+     * @param path   parent of the lock nodes, created when first needed
+     */
+    public ZkDistLock(CuratorFramework client, String path) {
+        this.client = client;
+        this.path = path;
+    }
+
+    @Override
+    protected boolean acquire(long timeout, TimeUnit unit) throws Exception {
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(timeout, 0));
+        String ours = client.create()
+                .creatingParentContainersIfNeeded()
+                .withProtection()
+                .withMode(CreateMode.EPHEMERAL_SEQUENTIAL)
+                .forPath(ZKPaths.makePath(path, PREFIX));
+        boolean acquired = false;
+        try {
+            acquired = await(ours, timeout >= 0, deadline);
+            if (acquired) {
+                node = ours;
+            }
+            return acquired;
+        } finally {
+            if (!acquired) {
+                delete(ours);
+            }
+        }
+    }
+
+    private boolean await(String ours, boolean timed, long deadline) throws Exception {
+        String name = ZKPaths.getNodeFromPath(ours);
+        while (true) {
+            List<String> children = client.getChildren().forPath(path);
+            children.sort(BY_SEQUENCE);
+            int index = children.indexOf(name);
+            if (index < 0) {
+                throw new DistLockException("lock node " + ours + " is gone, session expired?", null);
+            }
+            if (index == 0) {
+                return true;
+            }
+            String predecessor = ZKPaths.makePath(path, children.get(index - 1));
+            if (timed && deadline - System.nanoTime() <= 0) {
+                return false;
+            }
+            // a latch per watch, so an event wakes only the thread that set it, and the
+            // ZooKeeper event thread never waits on anything the waiters hold
+            CountDownLatch changed = new CountDownLatch(1);
+            try {
+                // getData rather than exists, which would leave a watch behind on a missing node
+                client.getData().usingWatcher((Watcher) event -> changed.countDown()).forPath(predecessor);
+            } catch (KeeperException.NoNodeException e) {
+                continue;
+            }
+            if (timed) {
+                changed.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } else {
+                changed.await();
+            }
+        }
+    }
+
+    @Override
+    protected void release() throws Exception {
+        String ours = node;
+        node = null;
+        try {
+            client.delete().guaranteed().forPath(ours);
+        } catch (KeeperException.NoNodeException e) {
+            throw new DistLockException("lock node " + ours + " was already gone, session expired?", e);
+        }
+    }
+
+    /**
+     * @return the holder's sequence number, which grows with every acquisition of the path and
+     * so can serve as a fencing token
+     */
+    long sequence() {
+        String ours = node;
+        return Long.parseLong(ours.substring(ours.length() - SEQUENCE_LENGTH));
+    }
+
+    /**
+     * @return whether the holder's node is still there, one round trip
+     */
+    boolean stillHeld() throws Exception {
+        String ours = node;
+        return ours != null && client.checkExists().forPath(ours) != null;
+    }
+
+    private void delete(String ours) throws Exception {
+        try {
+            client.delete().guaranteed().forPath(ours);
+        } catch (KeeperException.NoNodeException e) {
+            // nothing to give back
+        }
+    }
+
+    /**
+     * @return the contenders' node names in queue order, the holder first
+     */
+    public List<String> queue() throws Exception {
+        try {
+            List<String> children = client.getChildren().forPath(path);
+            children.sort(BY_SEQUENCE);
+            return children;
+        } catch (KeeperException.NoNodeException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ZkDistLock[" + path + "]";
+    }
+}
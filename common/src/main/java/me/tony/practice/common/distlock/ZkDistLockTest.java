@@ -0,0 +1,126 @@
+package me.tony.practice.common.distlock;
+
+import me.tony.practice.common.Base;
+import org.apache.curator.test.TestingServer;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Against Curator's in-process {@link TestingServer}, every contender on a client of its own
+ * as if it were a separate process.
+ */
+public class ZkDistLockTest extends Base {
+
+    private static final String PATH = "/locks/test";
+
+    @Rule
+    public ZkTestServer zk = new ZkTestServer();
+
+    private ZkDistLock newLock() {
+        return new ZkDistLock(zk.newClient(), PATH);
+    }
+
+    @Test
+    public void mutualExclusion() throws Exception {
+        final int threads = 4;
+        final int rounds = 25;
+        final List<ZkDistLock> locks = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            locks.add(newLock());
+        }
+        final AtomicInteger counter = new AtomicInteger();
+        assertEquals(0, ZkTestServer.overlaps(threads, rounds, (thread, critical) -> {
+            ZkDistLock lock = locks.get(thread);
+            lock.lock();
+            try {
+                critical.run();
+                counter.incrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+        }));
+        assertEquals(threads * rounds, counter.get());
+        assertTrue(newLock().queue().isEmpty());
+    }
+
+    @Test
+    public void reentrant() throws Exception {
+        ZkDistLock lock = newLock();
+        ZkDistLock other = newLock();
+        lock.lock();
+        assertTrue(lock.tryLock());
+        assertEquals(2, lock.getHoldCount());
+        // one node however deep the holder goes
+        assertEquals(1, lock.queue().size());
+        lock.unlock();
+        assertTrue(lock.isHeldByCurrentThread());
+        assertFalse(other.tryLock());
+        lock.unlock();
+        assertFalse(lock.isHeldByCurrentThread());
+        assertTrue(other.tryLock());
+        other.unlock();
+    }
+
+    @Test
+    public void tryLockTimesOut() throws Exception {
+        ZkDistLock holder = newLock();
+        ZkDistLock waiter = newLock();
+        holder.lock();
+        try {
+            long start = System.nanoTime();
+            assertFalse(waiter.tryLock(300, TimeUnit.MILLISECONDS));
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue("waited " + elapsed + "ms", elapsed >= 300 && elapsed < 3000);
+            // the waiter gave its node back
+            assertEquals(1, holder.queue().size());
+        } finally {
+            holder.unlock();
+        }
+        assertTrue(waiter.tryLock(1, TimeUnit.SECONDS));
+        waiter.unlock();
+    }
+
+    @Test
+    public void releaseHandsOver() throws Exception {
+        ZkDistLock holder = newLock();
+        final ZkDistLock waiter = newLock();
+        holder.lock();
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                if (waiter.tryLock(10, TimeUnit.SECONDS)) {
+                    acquired.countDown();
+                    waiter.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        while (holder.queue().size() < 2) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, acquired.getCount());
+        holder.unlock();
+        assertTrue(acquired.await(10, TimeUnit.SECONDS));
+        thread.join();
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void unlockWithoutHolding() {
+        newLock().unlock();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void noConditions() {
+        newLock().newCondition();
+    }
+}
@@ -0,0 +1,106 @@
+package me.tony.practice.common.distlock;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.junit.rules.ExternalResource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The lock tests' shared fixture: a rule starting Curator's in-process {@link TestingServer}
+ * before each test and closing it, the clients made on it and the renewal scheduler after.
+ */
+class ZkTestServer extends ExternalResource {
+
+    private TestingServer server;
+    private ScheduledExecutorService scheduler;
+    private final List<CuratorFramework> clients = new ArrayList<>();
+
+    @Override
+    protected void before() throws Exception {
+        server = new TestingServer();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @Override
+    protected void after() {
+        scheduler.shutdownNow();
+        for (CuratorFramework client : clients) {
+            client.close();
+        }
+        clients.clear();
+        try {
+            server.close();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return a started client of its own, standing in for a separate JVM
+     */
+    CuratorFramework newClient() {
+        CuratorFramework client = CuratorFrameworkFactory.newClient(server.getConnectString(), new RetryOneTime(100));
+        client.start();
+        clients.add(client);
+        return client;
+    }
+
+    ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * One round of a contender: take the lock, run the critical section, let go.
+     */
+    interface Round {
+        void run(int thread, Runnable critical) throws Exception;
+    }
+
+    /**
+     * Runs threads times rounds rounds and counts the critical sections that found another one
+     * still running. Fails if a round throws or the threads take over a minute.
+     */
+    static int overlaps(int threads, final int rounds, final Round round) throws InterruptedException {
+        final AtomicInteger inside = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Runnable critical = () -> {
+            if (inside.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            inside.decrementAndGet();
+        };
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            new Thread(() -> {
+                try {
+                    for (int r = 0; r < rounds; r++) {
+                        round.run(thread, critical);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        if (failure.get() != null) {
+            throw new AssertionError("a contender failed", failure.get());
+        }
+        return overlaps.get();
+    }
+}
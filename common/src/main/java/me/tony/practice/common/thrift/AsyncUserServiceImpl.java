@@ -0,0 +1,112 @@
+package me.tony.practice.common.thrift;
+
+import me.tony.practice.common.Base;
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link UserService.AsyncIface} that runs every lookup on its own executor and completes the
+ * callback there, so the selector thread that decoded the request goes straight back to IO.
+ * At most maxInFlight lookups are queued or running; past that a call is turned down at once
+ * with an {@link TApplicationException#INTERNAL_ERROR} rather than queued behind slow ones.
+ */
+public class AsyncUserServiceImpl extends Base implements UserService.AsyncIface {
+
+    private final UserService.Iface delegate;
+    private final Executor executor;
+    private final Semaphore inFlight;
+    private final LongAdder rejected = new LongAdder();
+
+    public AsyncUserServiceImpl(UserService.Iface delegate, Executor executor, int maxInFlight) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * A fixed pool of daemon threads.
+     */
+    public static AsyncUserServiceImpl bounded(UserService.Iface delegate, int threads, int maxInFlight) {
+        final AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(maxInFlight), runnable -> {
+            Thread thread = new Thread(runnable, "user-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        return new AsyncUserServiceImpl(delegate, executor, maxInFlight);
+    }
+
+    /**
+     * A virtual thread per lookup when the JVM has them, see {@link UserServiceServer#connectionExecutor()}.
+     */
+    public static AsyncUserServiceImpl virtualThreads(UserService.Iface delegate, int maxInFlight) {
+        return new AsyncUserServiceImpl(delegate, UserServiceServer.connectionExecutor(), maxInFlight);
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    private <T> void submit(final AsyncMethodCallback<T> resultHandler, final Callable<T> lookup) {
+        if (!inFlight.tryAcquire()) {
+            reject(resultHandler);
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                T result;
+                try {
+                    result = lookup.call();
+                } catch (Exception e) {
+                    inFlight.release();
+                    resultHandler.onError(e);
+                    return;
+                }
+                inFlight.release();
+                resultHandler.onComplete(result);
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            reject(resultHandler);
+        }
+    }
+
+    private void reject(AsyncMethodCallback<?> resultHandler) {
+        rejected.increment();
+        resultHandler.onError(new TApplicationException(TApplicationException.INTERNAL_ERROR, "server busy"));
+    }
+
+    @Override
+    public void findByUsercode(String usercode, AsyncMethodCallback<User> resultHandler) throws TException {
+        submit(resultHandler, () -> delegate.findByUsercode(usercode));
+    }
+
+    @Override
+    public void exist(String usercode, AsyncMethodCallback<Boolean> resultHandler) throws TException {
+        submit(resultHandler, () -> delegate.exist(usercode));
+    }
+
+    @Override
+    public void findByName(String name, AsyncMethodCallback<List<User>> resultHandler) throws TException {
+        submit(resultHandler, () -> delegate.findByName(name));
+    }
+
+    @Override
+    public void findByUsercodes(List<String> usercodes, AsyncMethodCallback<Map<String, User>> resultHandler) throws TException {
+        submit(resultHandler, () -> delegate.findByUsercodes(usercodes));
+    }
+
+    @Override
+    public void existAll(List<String> usercodes, AsyncMethodCallback<ByteBuffer> resultHandler) throws TException {
+        submit(resultHandler, () -> delegate.existAll(usercodes));
+    }
+}
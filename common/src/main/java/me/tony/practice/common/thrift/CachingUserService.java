@@ -0,0 +1,400 @@
+package me.tony.practice.common.thrift;
+
+import me.tony.practice.common.Base;
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TException;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client side near cache over any {@link UserService.Iface}.
+ * <ul>
+ * <li>bounded, LRU within each of {@link #SEGMENTS} segments picked by usercode hash</li>
+ * <li>entries expire after a ttl; a shorter one for usercodes known not to exist</li>
+ * <li>concurrent misses on one usercode share a single call to the delegate</li>
+ * <li>{@link #invalidate} for push, {@link #poll} for a periodic change feed</li>
+ * </ul>
+ * Missing users come back as {@link TApplicationException#MISSING_RESULT}, the same as through
+ * {@link UserService.Client}, whether the delegate threw it or returned null.
+ * The delegate is called from many threads, so it has to be thread safe itself.
+ * findByName is not cached, but the users it returns are.
+ * {@link User} is mutable, so the cache keeps its own copies and every answer is a fresh copy
+ * the caller is free to change.
+ */
+public class CachingUserService extends Base implements UserService.Iface {
+
+    static final int SEGMENTS = 16;
+
+    private final UserService.Iface delegate;
+    private final long ttl;
+    private final long negativeTtl;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> finding = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> checking = new ConcurrentHashMap<>();
+    // bumped by every invalidation, so a load that raced one is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingUserService(UserService.Iface delegate, int maximumSize, long ttl, long negativeTtl, TimeUnit unit) {
+        this.delegate = delegate;
+        this.ttl = unit.toNanos(ttl);
+        this.negativeTtl = unit.toNanos(negativeTtl);
+        int capacity = Math.max(1, maximumSize / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * What the cache knows about one usercode. A null user with exists set means exist said
+     * true but the user itself has not been fetched yet.
+     */
+    private static final class Entry {
+        final User user;
+        final boolean exists;
+        final long expiresAt;
+
+        Entry(User user, boolean exists, long expiresAt) {
+            this.user = user;
+            this.exists = exists;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * @return a copy of the user, never the cached instance
+         */
+        User found() throws TApplicationException {
+            if (user == null) {
+                throw new TApplicationException(TApplicationException.MISSING_RESULT, "findByUsercode failed: unknown result");
+            }
+            return new User(user);
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<String, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    static int segmentIndex(String usercode) {
+        int h = usercode.hashCode();
+        return (h ^ (h >>> 16)) & (SEGMENTS - 1);
+    }
+
+    private Segment segment(String usercode) {
+        return segments[segmentIndex(usercode)];
+    }
+
+    /**
+     * @return the monitor guarding the usercode's segment, for tests to hold
+     */
+    Object segmentLock(String usercode) {
+        return segment(usercode);
+    }
+
+    /**
+     * @return a live entry or null
+     */
+    private Entry lookup(String usercode) {
+        Segment segment = segment(usercode);
+        synchronized (segment) {
+            Entry entry = segment.get(usercode);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt - System.nanoTime() <= 0) {
+                segment.remove(usercode);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Caches a copy of the user, the instance passed in stays the caller's.
+     */
+    private Entry store(String usercode, User user, boolean exists, long version) {
+        Entry entry = new Entry(user == null ? null : new User(user), exists, System.nanoTime() + (exists ? ttl : negativeTtl));
+        Segment segment = segment(usercode);
+        synchronized (segment) {
+            // checked under the segment lock, which invalidate takes to remove after bumping the
+            // counter, so an invalidation either shows here or removes what is put here
+            if (invalidations.get() != version) {
+                return entry;
+            }
+            Entry current = segment.get(usercode);
+            // a looked up user beats a bare exist answer that comes back later
+            if (current == null || current.user == null || user != null || !exists) {
+                segment.put(usercode, entry);
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public User findByUsercode(String usercode) throws TException {
+        Entry entry = lookup(usercode);
+        if (entry != null && (entry.user != null || !entry.exists)) {
+            return hit(entry).found();
+        }
+        misses.increment();
+        return load(finding, usercode, () -> {
+            long version = invalidations.get();
+            User user;
+            try {
+                user = delegate.findByUsercode(usercode);
+            } catch (TApplicationException e) {
+                if (e.getType() != TApplicationException.MISSING_RESULT) {
+                    throw e;
+                }
+                user = null;
+            }
+            return store(usercode, user, user != null, version);
+        }).found();
+    }
+
+    @Override
+    public boolean exist(String usercode) throws TException {
+        Entry entry = lookup(usercode);
+        if (entry != null) {
+            return hit(entry).exists;
+        }
+        misses.increment();
+        return load(checking, usercode, () -> {
+            long version = invalidations.get();
+            return store(usercode, null, delegate.exist(usercode), version);
+        }).exists;
+    }
+
+    private Entry hit(Entry entry) {
+        if (entry.exists) {
+            hits.increment();
+        } else {
+            negativeHits.increment();
+        }
+        return entry;
+    }
+
+    private interface Loader {
+        Entry load() throws TException;
+    }
+
+    /**
+     * Runs the loader unless another thread is already loading the usercode, in which case
+     * waits for that thread's answer instead.
+     */
+    private Entry load(ConcurrentHashMap<String, CompletableFuture<Entry>> loading, String usercode, Loader loader) throws TException {
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> theirs = loading.putIfAbsent(usercode, mine);
+        if (theirs != null) {
+            collapsed.increment();
+            try {
+                return theirs.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TException(e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof TException ? (TException) e.getCause() : new TException(e.getCause());
+            }
+        }
+        try {
+            Entry entry = loader.load();
+            mine.complete(entry);
+            return entry;
+        } catch (TException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(usercode, mine);
+        }
+    }
+
+    @Override
+    public List<User> findByName(String name) throws TException {
+        long version = invalidations.get();
+        List<User> users = delegate.findByName(name);
+        if (users != null) {
+            for (User user : users) {
+                store(user.getUsercode(), user, true, version);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Cached usercodes are answered locally, the rest go to the delegate in one batch.
+     * Not collapsed with concurrent single lookups.
+     */
+    @Override
+    public Map<String, User> findByUsercodes(List<String> usercodes) throws TException {
+        Map<String, User> found = new HashMap<>(usercodes.size() * 2);
+        List<String> missing = new ArrayList<>();
+        for (String usercode : usercodes) {
+            Entry entry = lookup(usercode);
+            if (entry != null && (entry.user != null || !entry.exists)) {
+                hit(entry);
+                if (entry.user != null) {
+                    found.put(usercode, entry.found());
+                }
+            } else {
+                misses.increment();
+                missing.add(usercode);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long version = invalidations.get();
+            Map<String, User> loaded = delegate.findByUsercodes(missing);
+            for (String usercode : missing) {
+                User user = loaded.get(usercode);
+                store(usercode, user, user != null, version);
+                if (user != null) {
+                    found.put(usercode, user);
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public ByteBuffer existAll(List<String> usercodes) throws TException {
+        BitSet existing = new BitSet(usercodes.size());
+        List<String> missing = new ArrayList<>();
+        int[] positions = new int[usercodes.size()];
+        for (int i = 0; i < usercodes.size(); i++) {
+            Entry entry = lookup(usercodes.get(i));
+            if (entry != null) {
+                existing.set(i, hit(entry).exists);
+            } else {
+                misses.increment();
+                positions[missing.size()] = i;
+                missing.add(usercodes.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            long version = invalidations.get();
+            BitSet loaded = UserServiceImpl.existing(delegate.existAll(missing));
+            for (int i = 0; i < missing.size(); i++) {
+                boolean exists = loaded.get(i);
+                store(missing.get(i), null, exists, version);
+                existing.set(positions[i], exists);
+            }
+        }
+        return ByteBuffer.wrap(existing.toByteArray());
+    }
+
+    public void invalidate(String usercode) {
+        invalidations.incrementAndGet();
+        Segment segment = segment(usercode);
+        synchronized (segment) {
+            segment.remove(usercode);
+        }
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * A feed of changed usercodes, for servers that can only be polled.
+     */
+    public interface ChangeFeed {
+        /**
+         * @return usercodes changed since the previous call, or null if the feed lost track and
+         * everything has to go
+         */
+        Collection<String> changes() throws Exception;
+    }
+
+    /**
+     * Polls the feed at a fixed delay and invalidates what it reports.
+     * Cancel the returned future to stop.
+     */
+    public ScheduledFuture<?> poll(ScheduledExecutorService scheduler, final ChangeFeed feed, long period, TimeUnit unit) {
+        return scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                Collection<String> changes = feed.changes();
+                if (changes == null) {
+                    invalidateAll();
+                } else {
+                    for (String usercode : changes) {
+                        invalidate(usercode);
+                    }
+                }
+            } catch (Exception e) {
+                // a missed poll only means entries live until their ttl
+                logger.warn("user change feed failed", e);
+            }
+        }, period, period, unit);
+    }
+
+    public Stats stats() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return new Stats(size, hits.sum(), negativeHits.sum(), misses.sum(), collapsed.sum(), evictions.sum());
+    }
+
+    public static final class Stats {
+        public final int size;
+        public final long hits;
+        public final long negativeHits;
+        public final long misses;
+        public final long collapsed;
+        public final long evictions;
+
+        Stats(int size, long hits, long negativeHits, long misses, long collapsed, long evictions) {
+            this.size = size;
+            this.hits = hits;
+            this.negativeHits = negativeHits;
+            this.misses = misses;
+            this.collapsed = collapsed;
+            this.evictions = evictions;
+        }
+
+        /**
+         * @return share of lookups answered locally, negative answers included
+         */
+        public double hitRate() {
+            long total = hits + negativeHits + misses;
+            return total == 0 ? 0 : (double) (hits + negativeHits) / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("size=%d hits=%d negativeHits=%d misses=%d collapsed=%d evictions=%d hitRate=%.3f",
+                    size, hits, negativeHits, misses, collapsed, evictions, hitRate());
+        }
+    }
+}
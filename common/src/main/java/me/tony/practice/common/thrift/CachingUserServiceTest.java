@@ -0,0 +1,235 @@
+package me.tony.practice.common.thrift;
+
+import me.tony.practice.common.Base;
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TException;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link CachingUserService} over a {@link UserServiceImpl} that counts its lookups and can be
+ * held in the middle of one.
+ */
+public class CachingUserServiceTest extends Base {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private static final class Delegate extends UserServiceImpl {
+        final UserStore store;
+        final AtomicInteger lookups = new AtomicInteger();
+        // when set, a lookup reads the store, then counts down entered and waits for release
+        volatile CountDownLatch entered;
+        volatile CountDownLatch release;
+
+        Delegate(UserStore store) {
+            super(store);
+            this.store = store;
+        }
+
+        @Override
+        public User findByUsercode(String usercode) throws TException {
+            lookups.incrementAndGet();
+            User user = super.findByUsercode(usercode);
+            CountDownLatch release = this.release;
+            if (release != null) {
+                entered.countDown();
+                try {
+                    assertTrue(release.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new TException(e);
+                }
+            }
+            return user;
+        }
+    }
+
+    private static Delegate delegate(int users) {
+        UserStore store = new UserStore();
+        for (int i = 0; i < users; i++) {
+            store.add(new User("Jim", Gender.MALE, Integer.toString(1000 + i), 20));
+        }
+        return new Delegate(store);
+    }
+
+    @Test
+    public void concurrentMissesShareOneCall() throws Exception {
+        Delegate delegate = delegate(1);
+        CachingUserService cache = new CachingUserService(delegate, 100, HOUR, HOUR, TimeUnit.MILLISECONDS);
+        delegate.entered = new CountDownLatch(1);
+        delegate.release = new CountDownLatch(1);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<User>> answers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                answers.add(executor.submit(() -> cache.findByUsercode("1000")));
+            }
+            assertTrue(delegate.entered.await(10, TimeUnit.SECONDS));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (cache.stats().collapsed < threads - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            delegate.release.countDown();
+            Set<User> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Future<User> answer : answers) {
+                User user = answer.get(10, TimeUnit.SECONDS);
+                assertEquals("1000", user.getUsercode());
+                distinct.add(user);
+            }
+            assertEquals(1, delegate.lookups.get());
+            assertEquals(threads - 1, cache.stats().collapsed);
+            // each waiter got a copy of its own
+            assertEquals(threads, distinct.size());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("1000", cache.findByUsercode("1000").getUsercode());
+        assertEquals(1, delegate.lookups.get());
+        assertEquals(1, cache.stats().hits);
+    }
+
+    @Test
+    public void missingUsersExpireAfterTheNegativeTtl() throws Exception {
+        Delegate delegate = delegate(1);
+        CachingUserService cache = new CachingUserService(delegate, 100, HOUR, 200, TimeUnit.MILLISECONDS);
+        assertMissing(cache, "2000");
+        delegate.store.add(new User("Lucy", Gender.FEMALE, "2000", 30));
+        // still the cached answer, without asking the delegate
+        assertMissing(cache, "2000");
+        assertFalse(cache.exist("2000"));
+        assertEquals(1, delegate.lookups.get());
+        assertEquals(2, cache.stats().negativeHits);
+
+        Thread.sleep(300);
+        assertEquals("Lucy", cache.findByUsercode("2000").getName());
+        assertEquals(2, delegate.lookups.get());
+        // the user itself lives for the long ttl
+        assertTrue(cache.exist("2000"));
+        assertEquals(2, delegate.lookups.get());
+    }
+
+    /**
+     * A lookup that read the old user before an invalidation may still return it, but must not
+     * leave it in the cache.
+     */
+    @Test
+    public void loadRacingAnInvalidationIsNotCached() throws Exception {
+        Delegate delegate = delegate(1);
+        CachingUserService cache = new CachingUserService(delegate, 100, HOUR, HOUR, TimeUnit.MILLISECONDS);
+        delegate.entered = new CountDownLatch(1);
+        delegate.release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<User> stale = executor.submit(() -> cache.findByUsercode("1000"));
+            assertTrue(delegate.entered.await(10, TimeUnit.SECONDS));
+            delegate.store.add(new User("Tom", Gender.MALE, "1000", 21));
+            cache.invalidate("1000");
+            delegate.release.countDown();
+            assertEquals("Jim", stale.get(10, TimeUnit.SECONDS).getName());
+        } finally {
+            executor.shutdownNow();
+        }
+        delegate.release = null;
+        assertEquals("Tom", cache.findByUsercode("1000").getName());
+        assertEquals(2, delegate.lookups.get());
+        assertEquals("Tom", cache.findByUsercode("1000").getName());
+        assertEquals(2, delegate.lookups.get());
+    }
+
+    /**
+     * The same, with the invalidation landing after the load is done but before its answer is
+     * stored: the loader is held at the segment lock while the invalidation runs.
+     */
+    @Test
+    public void invalidationBeforeTheStoreIsNotLost() throws Exception {
+        Delegate delegate = delegate(1);
+        CachingUserService cache = new CachingUserService(delegate, 100, HOUR, HOUR, TimeUnit.MILLISECONDS);
+        delegate.entered = new CountDownLatch(1);
+        delegate.release = new CountDownLatch(1);
+        CompletableFuture<User> stale = new CompletableFuture<>();
+        Thread loader = new Thread(() -> {
+            try {
+                stale.complete(cache.findByUsercode("1000"));
+            } catch (Throwable e) {
+                stale.completeExceptionally(e);
+            }
+        });
+        loader.start();
+        assertTrue(delegate.entered.await(10, TimeUnit.SECONDS));
+        synchronized (cache.segmentLock("1000")) {
+            delegate.release.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (loader.getState() != Thread.State.BLOCKED && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(Thread.State.BLOCKED, loader.getState());
+            assertEquals(1, delegate.lookups.get());
+            delegate.store.add(new User("Tom", Gender.MALE, "1000", 21));
+            cache.invalidate("1000");
+        }
+        assertEquals("Jim", stale.get(10, TimeUnit.SECONDS).getName());
+        delegate.release = null;
+        assertEquals("Tom", cache.findByUsercode("1000").getName());
+        assertEquals(2, delegate.lookups.get());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() throws Exception {
+        Delegate delegate = delegate(1000);
+        // two entries in each segment
+        CachingUserService cache = new CachingUserService(delegate, 2 * CachingUserService.SEGMENTS, HOUR, HOUR, TimeUnit.MILLISECONDS);
+        List<String> sameSegment = new ArrayList<>();
+        for (int i = 0; sameSegment.size() < 3; i++) {
+            String usercode = Integer.toString(1000 + i);
+            if (CachingUserService.segmentIndex(usercode) == 0) {
+                sameSegment.add(usercode);
+            }
+        }
+        String a = sameSegment.get(0), b = sameSegment.get(1), c = sameSegment.get(2);
+        cache.findByUsercode(a);
+        cache.findByUsercode(b);
+        cache.findByUsercode(a);
+        cache.findByUsercode(c);
+        assertEquals(3, delegate.lookups.get());
+        assertEquals(1, cache.stats().evictions);
+        // a was used after b, so b went
+        cache.findByUsercode(a);
+        cache.findByUsercode(c);
+        assertEquals(3, delegate.lookups.get());
+        cache.findByUsercode(b);
+        assertEquals(4, delegate.lookups.get());
+
+        for (int i = 0; i < 1000; i++) {
+            cache.findByUsercode(Integer.toString(1000 + i));
+        }
+        CachingUserService.Stats stats = cache.stats();
+        assertTrue(stats.toString(), stats.size <= 2 * CachingUserService.SEGMENTS);
+        assertEquals(stats.toString(), stats.misses, stats.size + stats.evictions);
+    }
+
+    @Test
+    public void answersAreCopies() throws Exception {
+        Delegate delegate = delegate(2);
+        CachingUserService cache = new CachingUserService(delegate, 100, HOUR, HOUR, TimeUnit.MILLISECONDS);
+        cache.findByUsercode("1000").setName("Tom");
+        cache.findByName("Jim").get(1).setAge(99);
+        cache.findByUsercodes(Arrays.asList("1000", "1001")).get("1000").setGender(Gender.FEMALE);
+        assertEquals(new User("Jim", Gender.MALE, "1000", 20), cache.findByUsercode("1000"));
+        assertEquals(new User("Jim", Gender.MALE, "1001", 20), cache.findByUsercode("1001"));
+        assertEquals(1, delegate.lookups.get());
+    }
+
+    private static void assertMissing(CachingUserService cache, String usercode) throws TException {
+        try {
+            cache.findByUsercode(usercode);
+            fail("found " + usercode);
+        } catch (TApplicationException e) {
+            assertEquals(TApplicationException.MISSING_RESULT, e.getType());
+        }
+    }
+}
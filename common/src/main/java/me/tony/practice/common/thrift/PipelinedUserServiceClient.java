@@ -0,0 +1,286 @@
+package me.tony.practice.common.thrift;
+
+import me.tony.practice.common.Base;
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TByteArrayOutputStream;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TIOStreamTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransportException;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link UserService} client that keeps many calls in flight on each connection.
+ * Unlike {@link UserService.Client} a call does not wait for the previous reply: requests are
+ * written as soon as they are made, tagged with a sequence id, and a reader thread per
+ * connection completes the matching future when the reply arrives.
+ * Speaks framed binary, so the server has to run one of the framed {@link UserServiceServer.Mode}s.
+ */
+public class PipelinedUserServiceClient extends Base implements Closeable {
+
+    private final Connection[] connections;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public PipelinedUserServiceClient(String host, int port, int connections) throws TTransportException {
+        this.connections = new Connection[connections];
+        try {
+            for (int i = 0; i < connections; i++) {
+                this.connections[i] = new Connection(host, port, i);
+            }
+        } catch (TTransportException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Completes exceptionally with a {@link TApplicationException#MISSING_RESULT} when there is
+     * no such user, the same as {@link UserService.Client#findByUsercode}.
+     */
+    public CompletableFuture<User> findByUsercode(String usercode) {
+        Call<User> call = findCall(usercode);
+        connection().send(call);
+        return call.future;
+    }
+
+    public CompletableFuture<Boolean> exist(String usercode) {
+        Call<Boolean> call = new Call<Boolean>("exist", new UserService.exist_args(usercode), new UserService.exist_result()) {
+            @Override
+            Boolean value(TBase<?, ?> result) throws TApplicationException {
+                UserService.exist_result reply = (UserService.exist_result) result;
+                if (!reply.isSetSuccess()) {
+                    throw new TApplicationException(TApplicationException.MISSING_RESULT, "exist failed: unknown result");
+                }
+                return reply.isSuccess();
+            }
+        };
+        connection().send(call);
+        return call.future;
+    }
+
+    /**
+     * Looks up every usercode, spreading them over the connections with one flush per connection.
+     * Usercodes without a user are left out of the map.
+     */
+    public CompletableFuture<Map<String, User>> findAll(Collection<String> usercodes) {
+        List<List<Call<User>>> batches = new ArrayList<>(connections.length);
+        for (int i = 0; i < connections.length; i++) {
+            batches.add(new ArrayList<Call<User>>());
+        }
+        List<Call<User>> calls = new ArrayList<>(usercodes.size());
+        int i = next.getAndAdd(usercodes.size());
+        for (String usercode : usercodes) {
+            Call<User> call = findCall(usercode);
+            calls.add(call);
+            batches.get(Math.floorMod(i++, connections.length)).add(call);
+        }
+        for (int c = 0; c < connections.length; c++) {
+            if (!batches.get(c).isEmpty()) {
+                connections[c].send(batches.get(c));
+            }
+        }
+        final List<CompletableFuture<User>> found = new ArrayList<>(calls.size());
+        for (Call<User> call : calls) {
+            found.add(call.future.handle((user, e) -> {
+                if (e != null && !missing(e)) {
+                    throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                }
+                return user;
+            }));
+        }
+        return CompletableFuture.allOf(found.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<String, User> users = new HashMap<>(found.size() * 2);
+            for (CompletableFuture<User> future : found) {
+                User user = future.join();
+                if (user != null) {
+                    users.put(user.getUsercode(), user);
+                }
+            }
+            return users;
+        });
+    }
+
+    private static boolean missing(Throwable e) {
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        return cause instanceof TApplicationException
+                && ((TApplicationException) cause).getType() == TApplicationException.MISSING_RESULT;
+    }
+
+    private static Call<User> findCall(String usercode) {
+        return new Call<User>("findByUsercode", new UserService.findByUsercode_args(usercode), new UserService.findByUsercode_result()) {
+            @Override
+            User value(TBase<?, ?> result) throws TApplicationException {
+                UserService.findByUsercode_result reply = (UserService.findByUsercode_result) result;
+                if (!reply.isSetSuccess()) {
+                    throw new TApplicationException(TApplicationException.MISSING_RESULT, "findByUsercode failed: unknown result");
+                }
+                return reply.getSuccess();
+            }
+        };
+    }
+
+    private Connection connection() {
+        return connections[Math.floorMod(next.getAndIncrement(), connections.length)];
+    }
+
+    @Override
+    public void close() {
+        for (Connection connection : connections) {
+            if (connection != null) {
+                connection.close(new TTransportException(TTransportException.NOT_OPEN, "client closed"));
+            }
+        }
+    }
+
+    private abstract static class Call<T> {
+        final String method;
+        final TBase<?, ?> args;
+        final TBase<?, ?> result;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Call(String method, TBase<?, ?> args, TBase<?, ?> result) {
+            this.method = method;
+            this.args = args;
+            this.result = result;
+        }
+
+        abstract T value(TBase<?, ?> result) throws TApplicationException;
+
+        void complete(TProtocol in) throws TException {
+            result.read(in);
+            in.readMessageEnd();
+            try {
+                future.complete(value(result));
+            } catch (TApplicationException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * One socket. Writers serialize each call into its own frame under the connection lock and
+     * flush once per send; the reader owns the input side.
+     */
+    private static final class Connection implements Runnable {
+
+        private final TSocket socket;
+        private final TProtocol in;
+        private final TByteArrayOutputStream frame = new TByteArrayOutputStream(256);
+        private final TProtocol out = new TBinaryProtocol(new TIOStreamTransport(frame));
+        private final byte[] header = new byte[4];
+        private final Map<Integer, Call<?>> pending = new ConcurrentHashMap<>();
+        private int seqid;
+        private volatile TException failure;
+
+        Connection(String host, int port, int index) throws TTransportException {
+            socket = new TSocket(host, port);
+            socket.open();
+            in = new TBinaryProtocol(new TFramedTransport(socket));
+            Thread reader = new Thread(this, "thrift-pipeline-" + index);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        void send(Call<?> call) {
+            List<Call<?>> calls = new ArrayList<>(1);
+            calls.add(call);
+            send(calls);
+        }
+
+        synchronized void send(List<? extends Call<?>> calls) {
+            int written = 0;
+            try {
+                for (Call<?> call : calls) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    int id = ++seqid;
+                    pending.put(id, call);
+                    written++;
+                    frame.reset();
+                    out.writeMessageBegin(new TMessage(call.method, TMessageType.CALL, id));
+                    call.args.write(out);
+                    out.writeMessageEnd();
+                    TFramedTransport.encodeFrameSize(frame.len(), header);
+                    socket.write(header, 0, 4);
+                    socket.write(frame.get(), 0, frame.len());
+                }
+                socket.flush();
+            } catch (TException e) {
+                for (Call<?> call : calls.subList(written, calls.size())) {
+                    call.future.completeExceptionally(e);
+                }
+                close(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            // out of pending while its reply is decoded, so close() would not see it
+            Call<?> call = null;
+            try {
+                while (true) {
+                    TMessage message = in.readMessageBegin();
+                    call = pending.remove(message.seqid);
+                    if (call == null) {
+                        throw new TApplicationException(TApplicationException.BAD_SEQUENCE_ID, "unexpected reply " + message.seqid);
+                    }
+                    if (message.type == TMessageType.EXCEPTION) {
+                        TApplicationException e = TApplicationException.readFrom(in);
+                        in.readMessageEnd();
+                        call.future.completeExceptionally(e);
+                    } else {
+                        call.complete(in);
+                    }
+                    call = null;
+                }
+            } catch (TException e) {
+                fail(call, e);
+            } catch (RuntimeException e) {
+                fail(call, new TTransportException(TTransportException.UNKNOWN, "undecodable reply", e));
+            }
+        }
+
+        private void fail(Call<?> call, TException cause) {
+            if (failure == null) {
+                logger.warn("pipelined connection failed", cause);
+            }
+            close(cause);
+            if (call != null) {
+                call.future.completeExceptionally(cause);
+            }
+        }
+
+        /**
+         * Fails whatever is still in flight; later sends fail straight away.
+         */
+        void close(TException cause) {
+            if (failure == null) {
+                failure = cause;
+            }
+            socket.close();
+            for (Integer id : pending.keySet()) {
+                Call<?> call = pending.remove(id);
+                if (call != null) {
+                    call.future.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package me.tony.practice.common.thrift;
+
+import me.tony.practice.common.Base;
+import org.apache.thrift.protocol.*;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.junit.Test;
+
+import java.net.ServerSocket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Against a scripted server on a raw socket, to send replies a real server never would.
+ */
+public class PipelinedUserServiceClientTest extends Base {
+
+    /**
+     * A reply that fails to decode has to fail its own call, which is out of the pending map
+     * by then, as well as the connection.
+     */
+    @Test
+    public void undecodableReplyFailsItsCall() throws Exception {
+        try (ServerSocket listener = new ServerSocket(0)) {
+            Thread server = new Thread(() -> {
+                try (TSocket socket = new TSocket(listener.accept())) {
+                    TTransport transport = new TFramedTransport(socket);
+                    TProtocol protocol = new TBinaryProtocol(transport);
+
+                    TMessage request = readRequest(protocol);
+                    protocol.writeMessageBegin(new TMessage(request.name, TMessageType.REPLY, request.seqid));
+                    new UserService.findByUsercode_result().setSuccess(new User("Jim", Gender.MALE, "1001", 20)).write(protocol);
+                    protocol.writeMessageEnd();
+                    transport.flush();
+
+                    // a string field claiming a negative length
+                    request = readRequest(protocol);
+                    protocol.writeMessageBegin(new TMessage(request.name, TMessageType.REPLY, request.seqid));
+                    protocol.writeStructBegin(new TStruct("findByUsercode_result"));
+                    protocol.writeFieldBegin(new TField("success", TType.STRING, (short) 0));
+                    protocol.writeI32(-1);
+                    transport.flush();
+                    // hold the socket open, so only the bad reply can fail the call
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                } catch (Exception e) {
+                    logger.info("scripted server stopped: {}", e.toString());
+                }
+            });
+            server.setDaemon(true);
+            server.start();
+
+            try (PipelinedUserServiceClient client = new PipelinedUserServiceClient("127.0.0.1", listener.getLocalPort(), 1)) {
+                assertEquals("Jim", client.findByUsercode("1001").get(5, TimeUnit.SECONDS).getName());
+                CompletableFuture<User> bad = client.findByUsercode("1002");
+                try {
+                    bad.get(5, TimeUnit.SECONDS);
+                    fail("decoded a corrupt reply");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause().toString(), e.getCause() instanceof TProtocolException);
+                }
+                // and the connection is done for
+                assertTrue(client.findByUsercode("1003").isCompletedExceptionally());
+            }
+            server.interrupt();
+        }
+    }
+
+    private static TMessage readRequest(TProtocol protocol) throws Exception {
+        TMessage request = protocol.readMessageBegin();
+        TProtocolUtil.skip(protocol, TType.STRUCT);
+        protocol.readMessageEnd();
+        return request;
+    }
+}
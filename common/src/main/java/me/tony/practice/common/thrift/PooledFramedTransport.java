@@ -0,0 +1,175 @@
+package me.tony.practice.common.thrift;
+
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.apache.thrift.transport.TTransportFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Wire compatible with {@link TFramedTransport}, but keeps its read and write buffers for
+ * the life of the connection instead of allocating a new array for every incoming frame,
+ * and hands them to a small shared pool on close so the next connection starts warm.
+ * The read buffer is never exposed through {@link #getBuffer()}: the binary and compact
+ * protocols wrap binaries around the transport's buffer without copying, and the next frame,
+ * or the next connection to take the buffer from the pool, would overwrite them.
+ * The write buffer reserves the four header bytes up front, so a frame leaves in one write.
+ * <p>
+ * The buffers are heap arrays: the blocking socket transports only take byte arrays, so a
+ * direct buffer would cost one more copy rather than one less.
+ */
+public class PooledFramedTransport extends TTransport {
+
+    static final int DEFAULT_MAX_LENGTH = 16384000;
+    static final int INITIAL_CAPACITY = 1024;
+    // buffers grown past this are left to the gc rather than pinned in the pool
+    static final int RETAINED_CAPACITY = 64 * 1024;
+    private static final int HEADER = 4;
+    private static final ArrayBlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(256);
+
+    private final TTransport transport;
+    private final int maxLength;
+    private final byte[] header = new byte[HEADER];
+    private byte[] readBuffer;
+    private int readPosition;
+    private int readLimit;
+    private byte[] writeBuffer;
+    private int writeLength = HEADER;
+
+    public PooledFramedTransport(TTransport transport) {
+        this(transport, DEFAULT_MAX_LENGTH);
+    }
+
+    public PooledFramedTransport(TTransport transport, int maxLength) {
+        this.transport = transport;
+        this.maxLength = maxLength;
+    }
+
+    public static class Factory extends TTransportFactory {
+        private final int maxLength;
+
+        public Factory() {
+            this(DEFAULT_MAX_LENGTH);
+        }
+
+        public Factory(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public TTransport getTransport(TTransport base) {
+            return new PooledFramedTransport(base, maxLength);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return transport.isOpen();
+    }
+
+    @Override
+    public void open() throws TTransportException {
+        transport.open();
+    }
+
+    @Override
+    public void close() {
+        transport.close();
+        release(readBuffer);
+        release(writeBuffer);
+        readBuffer = null;
+        writeBuffer = null;
+        readPosition = readLimit = 0;
+        writeLength = HEADER;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws TTransportException {
+        if (readPosition == readLimit) {
+            readFrame();
+        }
+        int got = Math.min(len, readLimit - readPosition);
+        System.arraycopy(readBuffer, readPosition, buf, off, got);
+        readPosition += got;
+        return got;
+    }
+
+    /**
+     * @return null, see the class comment
+     */
+    @Override
+    public byte[] getBuffer() {
+        return null;
+    }
+
+    /**
+     * @return -1, so protocols always copy what they read
+     */
+    @Override
+    public int getBytesRemainingInBuffer() {
+        return -1;
+    }
+
+    private void readFrame() throws TTransportException {
+        transport.readAll(header, 0, HEADER);
+        int size = TFramedTransport.decodeFrameSize(header);
+        if (size < 0) {
+            close();
+            throw new TTransportException(TTransportException.CORRUPTED_DATA, "Read a negative frame size (" + size + ")!");
+        }
+        if (size > maxLength) {
+            close();
+            throw new TTransportException(TTransportException.CORRUPTED_DATA, "Frame size (" + size + ") larger than max length (" + maxLength + ")!");
+        }
+        if (readBuffer == null || readBuffer.length < size) {
+            release(readBuffer);
+            readBuffer = acquire(size);
+        }
+        transport.readAll(readBuffer, 0, size);
+        readPosition = 0;
+        readLimit = size;
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) throws TTransportException {
+        if (writeBuffer == null) {
+            writeBuffer = acquire(HEADER + len);
+        } else if (writeBuffer.length < writeLength + len) {
+            byte[] grown = new byte[Math.max(writeBuffer.length * 2, writeLength + len)];
+            System.arraycopy(writeBuffer, 0, grown, 0, writeLength);
+            release(writeBuffer);
+            writeBuffer = grown;
+        }
+        System.arraycopy(buf, off, writeBuffer, writeLength, len);
+        writeLength += len;
+    }
+
+    @Override
+    public void flush() throws TTransportException {
+        int length = writeLength;
+        writeLength = HEADER;
+        if (writeBuffer == null) {
+            // nothing written since the last flush, send an empty frame like TFramedTransport does
+            writeBuffer = acquire(HEADER);
+        }
+        TFramedTransport.encodeFrameSize(length - HEADER, writeBuffer);
+        transport.write(writeBuffer, 0, length);
+        transport.flush();
+    }
+
+    private static byte[] acquire(int capacity) {
+        byte[] buffer = POOL.poll();
+        if (buffer != null && buffer.length >= capacity) {
+            return buffer;
+        }
+        release(buffer);
+        return new byte[Math.max(INITIAL_CAPACITY, capacity)];
+    }
+
+    private static void release(byte[] buffer) {
+        if (buffer != null && buffer.length <= RETAINED_CAPACITY) {
+            POOL.offer(buffer);
+        }
+    }
+}
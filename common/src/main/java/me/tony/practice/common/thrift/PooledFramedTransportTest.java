@@ -0,0 +1,58 @@
+package me.tony.practice.common.thrift;
+
+import me.tony.practice.common.Base;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.transport.TTransport;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * A {@link UserServiceServer.Mode#SIMPLE} server and its client, both on
+ * {@link UserServiceServer.Framing#POOLED}.
+ */
+public class PooledFramedTransportTest extends Base {
+
+    private static final List<String> USERCODES = Arrays.asList("1001", "9999", "1003");
+
+    @Test
+    public void binaryRepliesOutliveTheNextFrame() throws Exception {
+        for (UserServiceServer.Protocol protocol : UserServiceServer.Protocol.values()) {
+            UserServiceServer launcher = new UserServiceServer(UserServiceServer.Mode.SIMPLE)
+                    .protocol(protocol)
+                    .framing(UserServiceServer.Framing.POOLED)
+                    .port(freePort());
+            TServer server = launcher.start();
+            TTransport transport = launcher.clientTransport("127.0.0.1");
+            try {
+                UserService.Client client = new UserService.Client(launcher.clientProtocol(transport));
+                transport.open();
+                ByteBuffer first = client.existAll(USERCODES);
+                BitSet expected = BitSet.valueOf(new byte[]{5});
+                assertEquals(protocol.name(), expected, UserServiceImpl.existing(first.duplicate()));
+                // more frames through the same buffers, one of them a binary of its own
+                assertFalse(client.findByName("Jim").isEmpty());
+                ByteBuffer second = client.existAll(Arrays.asList("9999", "9998", "9997", "1002"));
+                assertEquals(protocol.name(), BitSet.valueOf(new byte[]{8}), UserServiceImpl.existing(second.duplicate()));
+                assertEquals(protocol.name(), expected, UserServiceImpl.existing(first.duplicate()));
+                assertEquals(protocol.name(), expected, UserServiceImpl.existing(client.existAll(USERCODES)));
+            } finally {
+                transport.close();
+                server.stop();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -15,4 +15,7 @@ service UserService {
 User findByUsercode(3: string usercode)
 bool exist(3: string usercode)
 list<User> findByName(1: string name)
+map<string, User> findByUsercodes(1: list<string> usercodes)
+// bit i, little endian as in java.util.BitSet#toByteArray, is set if usercodes[i] exists
+binary existAll(1: list<string> usercodes)
 }
\ No newline at end of file
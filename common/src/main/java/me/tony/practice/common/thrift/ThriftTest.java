@@ -2,14 +2,13 @@ package me.tony.practice.common.thrift;
 
 import me.tony.practice.common.Base;
 import org.apache.thrift.TException;
-import org.apache.thrift.protocol.TBinaryProtocol;
-import org.apache.thrift.protocol.TProtocol;
-import org.apache.thrift.server.TServer;
-import org.apache.thrift.server.TSimpleServer;
-import org.apache.thrift.transport.*;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by tony on 2017/1/31.
@@ -18,47 +17,45 @@ public class ThriftTest extends Base {
 
     public static final int PORT = 8008;
 
+    /**
+     * Mode, protocol and framing are taken from the thrift.mode, thrift.protocol and thrift.framing
+     * system properties, {@link UserServiceServer.Mode#SIMPLE} over unframed binary by default.
+     */
     @Test
     public void serve() throws TTransportException {
-        TServerTransport serverTransport = new TServerSocket(PORT);
-        TServer.Args args = new TServer.Args(serverTransport);
-        args.processor(new UserService.Processor<UserService.Iface>(new UserServiceImpl()));
-        TServer server = new TSimpleServer(args);
-        logger.info("Thrift Server Start");
-        server.serve();
+        launcher().build().serve();
     }
 
     @Test
     public void client() throws TException {
-        TTransport transport = new TSocket("127.0.0.1", PORT);
-        TProtocol protocol = new TBinaryProtocol(transport);
-        UserService.Client client = new UserService.Client(protocol);
+        TTransport transport = launcher().clientTransport("127.0.0.1");
+        UserService.Client client = new UserService.Client(launcher().clientProtocol(transport));
         transport.open();
         User user = client.findByUsercode("1001");
         logger.info("method:{}, result: user-{}-{}", "findByUsercode", user.getUsercode(), user.getName());
         List<User> list = client.findByName("Jim");
         logger.info("method:{}, result: list size is {}", "findByName", list.size());
+        transport.close();
     }
 
-//    @Test
-//    public void asyncServe() throws TTransportException, IOException {
-//        TAsyncClientManager clientManager = new TAsyncClientManager();
-//        TProtocolFactory protocolFactory = new TCompactProtocol.Factory();
-//        TNonblockingTransport transport = new TNonblockingSocket(PORT);
-//        TServerTransport serverTransport = new TNonblockingServerSocket(PORT);
-//        TServer.Args args = new TServer.Args(serverTransport);
-//        args.processor(new UserService.AsyncProcessor<UserService.AsyncIface>(new UserServiceImpl()));
-//        TServer server = new TSimpleServer(args);
-//        logger.info("Thrift Async Server Start");
-//        server.serve();
-//    }
-//
-//    @Test
-//    public void asyncClient() {
-//        TTransport transport = new TSocket("127.0.0.1", PORT);
-//        TProtocol protocol = new TBinaryProtocol(transport);
-////        UserService.AsyncClient.Factory factory = new UserService.AsyncClient.Factory();
-//        UserService.AsyncClient client = new UserService.AsyncClient(protocol);
-//    }
+    /**
+     * Needs a framed server, e.g. -Dthrift.mode=THREADED_SELECTOR on {@link #serve}.
+     */
+    @Test
+    public void pipelinedClient() throws Exception {
+        try (PipelinedUserServiceClient client = new PipelinedUserServiceClient("127.0.0.1", PORT, 2)) {
+            User user = client.findByUsercode("1001").get();
+            logger.info("method:{}, result: user-{}-{}", "findByUsercode", user.getUsercode(), user.getName());
+            Map<String, User> users = client.findAll(Arrays.asList("1001", "1002", "1003", "2001")).get();
+            logger.info("method:{}, result: map size is {}", "findAll", users.size());
+        }
+    }
+
+    private static UserServiceServer launcher() {
+        UserServiceServer launcher = new UserServiceServer(UserServiceServer.Mode.valueOf(System.getProperty("thrift.mode", "SIMPLE")))
+                .protocol(UserServiceServer.Protocol.valueOf(System.getProperty("thrift.protocol", "BINARY")));
+        String framing = System.getProperty("thrift.framing");
+        return framing == null ? launcher : launcher.framing(UserServiceServer.Framing.valueOf(framing));
+    }
 
 }
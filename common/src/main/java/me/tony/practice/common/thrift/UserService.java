@@ -1,5 +1,8 @@
 /**
- * Autogenerated by Thrift Compiler (0.10.0)
+ * Autogenerated by Thrift Compiler (0.10.0) from an earlier Test.thrift, without
+ * findByUsercodes and existAll. Those two methods, in every part of this file, were added
+ * by hand in the generator's shape, as no 0.10.0 compiler was at hand; UserServiceTest
+ * covers them. Regenerate from Test.thrift with thrift 0.10.0 rather than editing further.
  *
  * DO NOT EDIT UNLESS YOU ARE SURE THAT YOU KNOW WHAT YOU ARE DOING
  *  @generated
@@ -7,7 +10,7 @@
 package me.tony.practice.common.thrift;
 
 @SuppressWarnings({"cast", "rawtypes", "serial", "unchecked", "unused"})
-@javax.annotation.Generated(value = "Autogenerated by Thrift Compiler (0.10.0)", date = "2017-02-15")
+@javax.annotation.Generated(value = "Autogenerated by Thrift Compiler (0.10.0)", date = "2017-02-15", comments = "findByUsercodes and existAll added by hand")
 public class UserService {
 
   public interface Iface {
@@ -18,6 +21,10 @@ public class UserService {
 
     public java.util.List<User> findByName(String name) throws org.apache.thrift.TException;
 
+    public java.util.Map<String,User> findByUsercodes(java.util.List<String> usercodes) throws org.apache.thrift.TException;
+
+    public java.nio.ByteBuffer existAll(java.util.List<String> usercodes) throws org.apache.thrift.TException;
+
   }
 
   public interface AsyncIface {
@@ -28,6 +35,10 @@ public class UserService {
 
     public void findByName(String name, org.apache.thrift.async.AsyncMethodCallback<java.util.List<User>> resultHandler) throws org.apache.thrift.TException;
 
+    public void findByUsercodes(java.util.List<String> usercodes, org.apache.thrift.async.AsyncMethodCallback<java.util.Map<String,User>> resultHandler) throws org.apache.thrift.TException;
+
+    public void existAll(java.util.List<String> usercodes, org.apache.thrift.async.AsyncMethodCallback<java.nio.ByteBuffer> resultHandler) throws org.apache.thrift.TException;
+
   }
 
   public static class Client extends org.apache.thrift.TServiceClient implements Iface {
@@ -119,6 +130,52 @@ public class UserService {
       throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "findByName failed: unknown result");
     }
 
+    public java.util.Map<String,User> findByUsercodes(java.util.List<String> usercodes) throws org.apache.thrift.TException
+    {
+      send_findByUsercodes(usercodes);
+      return recv_findByUsercodes();
+    }
+
+    public void send_findByUsercodes(java.util.List<String> usercodes) throws org.apache.thrift.TException
+    {
+      findByUsercodes_args args = new findByUsercodes_args();
+      args.setUsercodes(usercodes);
+      sendBase("findByUsercodes", args);
+    }
+
+    public java.util.Map<String,User> recv_findByUsercodes() throws org.apache.thrift.TException
+    {
+      findByUsercodes_result result = new findByUsercodes_result();
+      receiveBase(result, "findByUsercodes");
+      if (result.isSetSuccess()) {
+        return result.success;
+      }
+      throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "findByUsercodes failed: unknown result");
+    }
+
+    public java.nio.ByteBuffer existAll(java.util.List<String> usercodes) throws org.apache.thrift.TException
+    {
+      send_existAll(usercodes);
+      return recv_existAll();
+    }
+
+    public void send_existAll(java.util.List<String> usercodes) throws org.apache.thrift.TException
+    {
+      existAll_args args = new existAll_args();
+      args.setUsercodes(usercodes);
+      sendBase("existAll", args);
+    }
+
+    public java.nio.ByteBuffer recv_existAll() throws org.apache.thrift.TException
+    {
+      existAll_result result = new existAll_result();
+      receiveBase(result, "existAll");
+      if (result.isSetSuccess()) {
+        return result.success;
+      }
+      throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "existAll failed: unknown result");
+    }
+
   }
   public static class AsyncClient extends org.apache.thrift.async.TAsyncClient implements AsyncIface {
     public static class Factory implements org.apache.thrift.async.TAsyncClientFactory<AsyncClient> {
@@ -233,6 +290,70 @@ public class UserService {
       }
     }
 
+    public void findByUsercodes(java.util.List<String> usercodes, org.apache.thrift.async.AsyncMethodCallback<java.util.Map<String,User>> resultHandler) throws org.apache.thrift.TException {
+      checkReady();
+      findByUsercodes_call method_call = new findByUsercodes_call(usercodes, resultHandler, this, ___protocolFactory, ___transport);
+      this.___currentMethod = method_call;
+      ___manager.call(method_call);
+    }
+
+    public static class findByUsercodes_call extends org.apache.thrift.async.TAsyncMethodCall<java.util.Map<String,User>> {
+      private java.util.List<String> usercodes;
+      public findByUsercodes_call(java.util.List<String> usercodes, org.apache.thrift.async.AsyncMethodCallback<java.util.Map<String,User>> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.usercodes = usercodes;
+      }
+
+      public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
+        prot.writeMessageBegin(new org.apache.thrift.protocol.TMessage("findByUsercodes", org.apache.thrift.protocol.TMessageType.CALL, 0));
+        findByUsercodes_args args = new findByUsercodes_args();
+        args.setUsercodes(usercodes);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public java.util.Map<String,User> getResult() throws org.apache.thrift.TException {
+        if (getState() != org.apache.thrift.async.TAsyncMethodCall.State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        org.apache.thrift.transport.TMemoryInputTransport memoryTransport = new org.apache.thrift.transport.TMemoryInputTransport(getFrameBuffer().array());
+        org.apache.thrift.protocol.TProtocol prot = client.getProtocolFactory().getProtocol(memoryTransport);
+        return (new Client(prot)).recv_findByUsercodes();
+      }
+    }
+
+    public void existAll(java.util.List<String> usercodes, org.apache.thrift.async.AsyncMethodCallback<java.nio.ByteBuffer> resultHandler) throws org.apache.thrift.TException {
+      checkReady();
+      existAll_call method_call = new existAll_call(usercodes, resultHandler, this, ___protocolFactory, ___transport);
+      this.___currentMethod = method_call;
+      ___manager.call(method_call);
+    }
+
+    public static class existAll_call extends org.apache.thrift.async.TAsyncMethodCall<java.nio.ByteBuffer> {
+      private java.util.List<String> usercodes;
+      public existAll_call(java.util.List<String> usercodes, org.apache.thrift.async.AsyncMethodCallback<java.nio.ByteBuffer> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.usercodes = usercodes;
+      }
+
+      public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
+        prot.writeMessageBegin(new org.apache.thrift.protocol.TMessage("existAll", org.apache.thrift.protocol.TMessageType.CALL, 0));
+        existAll_args args = new existAll_args();
+        args.setUsercodes(usercodes);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public java.nio.ByteBuffer getResult() throws org.apache.thrift.TException {
+        if (getState() != org.apache.thrift.async.TAsyncMethodCall.State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        org.apache.thrift.transport.TMemoryInputTransport memoryTransport = new org.apache.thrift.transport.TMemoryInputTransport(getFrameBuffer().array());
+        org.apache.thrift.protocol.TProtocol prot = client.getProtocolFactory().getProtocol(memoryTransport);
+        return (new Client(prot)).recv_existAll();
+      }
+    }
+
   }
 
   public static class Processor<I extends Iface> extends org.apache.thrift.TBaseProcessor<I> implements org.apache.thrift.TProcessor {
@@ -249,6 +370,8 @@ public class UserService {
       processMap.put("findByUsercode", new findByUsercode());
       processMap.put("exist", new exist());
       processMap.put("findByName", new findByName());
+      processMap.put("findByUsercodes", new findByUsercodes());
+      processMap.put("existAll", new existAll());
       return processMap;
     }
 
@@ -313,6 +436,46 @@ public class UserService {
       }
     }
 
+    public static class findByUsercodes<I extends Iface> extends org.apache.thrift.ProcessFunction<I, findByUsercodes_args> {
+      public findByUsercodes() {
+        super("findByUsercodes");
+      }
+
+      public findByUsercodes_args getEmptyArgsInstance() {
+        return new findByUsercodes_args();
+      }
+
+      protected boolean isOneway() {
+        return false;
+      }
+
+      public findByUsercodes_result getResult(I iface, findByUsercodes_args args) throws org.apache.thrift.TException {
+        findByUsercodes_result result = new findByUsercodes_result();
+        result.success = iface.findByUsercodes(args.usercodes);
+        return result;
+      }
+    }
+
+    public static class existAll<I extends Iface> extends org.apache.thrift.ProcessFunction<I, existAll_args> {
+      public existAll() {
+        super("existAll");
+      }
+
+      public existAll_args getEmptyArgsInstance() {
+        return new existAll_args();
+      }
+
+      protected boolean isOneway() {
+        return false;
+      }
+
+      public existAll_result getResult(I iface, existAll_args args) throws org.apache.thrift.TException {
+        existAll_result result = new existAll_result();
+        result.success = iface.existAll(args.usercodes);
+        return result;
+      }
+    }
+
   }
 
   public static class AsyncProcessor<I extends AsyncIface> extends org.apache.thrift.TBaseAsyncProcessor<I> {
@@ -329,6 +492,8 @@ public class UserService {
       processMap.put("findByUsercode", new findByUsercode());
       processMap.put("exist", new exist());
       processMap.put("findByName", new findByName());
+      processMap.put("findByUsercodes", new findByUsercodes());
+      processMap.put("existAll", new existAll());
       return processMap;
     }
 
@@ -516,6 +681,128 @@ public class UserService {
       }
     }
 
+    public static class findByUsercodes<I extends AsyncIface> extends org.apache.thrift.AsyncProcessFunction<I, findByUsercodes_args, java.util.Map<String,User>> {
+      public findByUsercodes() {
+        super("findByUsercodes");
+      }
+
+      public findByUsercodes_args getEmptyArgsInstance() {
+        return new findByUsercodes_args();
+      }
+
+      public org.apache.thrift.async.AsyncMethodCallback<java.util.Map<String,User>> getResultHandler(final org.apache.thrift.server.AbstractNonblockingServer.AsyncFrameBuffer fb, final int seqid) {
+        final org.apache.thrift.AsyncProcessFunction fcall = this;
+        return new org.apache.thrift.async.AsyncMethodCallback<java.util.Map<String,User>>() {
+          public void onComplete(java.util.Map<String,User> o) {
+            findByUsercodes_result result = new findByUsercodes_result();
+            result.success = o;
+            try {
+              fcall.sendResponse(fb, result, org.apache.thrift.protocol.TMessageType.REPLY,seqid);
+            } catch (org.apache.thrift.transport.TTransportException e) {
+              _LOGGER.error("TTransportException writing to internal frame buffer", e);
+              fb.close();
+            } catch (Exception e) {
+              _LOGGER.error("Exception writing to internal frame buffer", e);
+              onError(e);
+            }
+          }
+          public void onError(Exception e) {
+            byte msgType = org.apache.thrift.protocol.TMessageType.REPLY;
+            org.apache.thrift.TSerializable msg;
+            findByUsercodes_result result = new findByUsercodes_result();
+            if (e instanceof org.apache.thrift.transport.TTransportException) {
+              _LOGGER.error("TTransportException inside handler", e);
+              fb.close();
+              return;
+            } else if (e instanceof org.apache.thrift.TApplicationException) {
+              _LOGGER.error("TApplicationException inside handler", e);
+              msgType = org.apache.thrift.protocol.TMessageType.EXCEPTION;
+              msg = (org.apache.thrift.TApplicationException)e;
+            } else {
+              _LOGGER.error("Exception inside handler", e);
+              msgType = org.apache.thrift.protocol.TMessageType.EXCEPTION;
+              msg = new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.INTERNAL_ERROR, e.getMessage());
+            }
+            try {
+              fcall.sendResponse(fb,msg,msgType,seqid);
+            } catch (Exception ex) {
+              _LOGGER.error("Exception writing to internal frame buffer", ex);
+              fb.close();
+            }
+          }
+        };
+      }
+
+      protected boolean isOneway() {
+        return false;
+      }
+
+      public void start(I iface, findByUsercodes_args args, org.apache.thrift.async.AsyncMethodCallback<java.util.Map<String,User>> resultHandler) throws org.apache.thrift.TException {
+        iface.findByUsercodes(args.usercodes,resultHandler);
+      }
+    }
+
+    public static class existAll<I extends AsyncIface> extends org.apache.thrift.AsyncProcessFunction<I, existAll_args, java.nio.ByteBuffer> {
+      public existAll() {
+        super("existAll");
+      }
+
+      public existAll_args getEmptyArgsInstance() {
+        return new existAll_args();
+      }
+
+      public org.apache.thrift.async.AsyncMethodCallback<java.nio.ByteBuffer> getResultHandler(final org.apache.thrift.server.AbstractNonblockingServer.AsyncFrameBuffer fb, final int seqid) {
+        final org.apache.thrift.AsyncProcessFunction fcall = this;
+        return new org.apache.thrift.async.AsyncMethodCallback<java.nio.ByteBuffer>() {
+          public void onComplete(java.nio.ByteBuffer o) {
+            existAll_result result = new existAll_result();
+            result.success = o;
+            try {
+              fcall.sendResponse(fb, result, org.apache.thrift.protocol.TMessageType.REPLY,seqid);
+            } catch (org.apache.thrift.transport.TTransportException e) {
+              _LOGGER.error("TTransportException writing to internal frame buffer", e);
+              fb.close();
+            } catch (Exception e) {
+              _LOGGER.error("Exception writing to internal frame buffer", e);
+              onError(e);
+            }
+          }
+          public void onError(Exception e) {
+            byte msgType = org.apache.thrift.protocol.TMessageType.REPLY;
+            org.apache.thrift.TSerializable msg;
+            existAll_result result = new existAll_result();
+            if (e instanceof org.apache.thrift.transport.TTransportException) {
+              _LOGGER.error("TTransportException inside handler", e);
+              fb.close();
+              return;
+            } else if (e instanceof org.apache.thrift.TApplicationException) {
+              _LOGGER.error("TApplicationException inside handler", e);
+              msgType = org.apache.thrift.protocol.TMessageType.EXCEPTION;
+              msg = (org.apache.thrift.TApplicationException)e;
+            } else {
+              _LOGGER.error("Exception inside handler", e);
+              msgType = org.apache.thrift.protocol.TMessageType.EXCEPTION;
+              msg = new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.INTERNAL_ERROR, e.getMessage());
+            }
+            try {
+              fcall.sendResponse(fb,msg,msgType,seqid);
+            } catch (Exception ex) {
+              _LOGGER.error("Exception writing to internal frame buffer", ex);
+              fb.close();
+            }
+          }
+        };
+      }
+
+      protected boolean isOneway() {
+        return false;
+      }
+
+      public void start(I iface, existAll_args args, org.apache.thrift.async.AsyncMethodCallback<java.nio.ByteBuffer> resultHandler) throws org.apache.thrift.TException {
+        iface.existAll(args.usercodes,resultHandler);
+      }
+    }
+
   }
 
   public static class findByUsercode_args implements org.apache.thrift.TBase<findByUsercode_args, findByUsercode_args._Fields>, java.io.Serializable, Cloneable, Comparable<findByUsercode_args>   {
@@ -2747,4 +3034,1629 @@ public class UserService {
     }
   }
 
+  public static class findByUsercodes_args implements org.apache.thrift.TBase<findByUsercodes_args, findByUsercodes_args._Fields>, java.io.Serializable, Cloneable, Comparable<findByUsercodes_args>   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("findByUsercodes_args");
+
+    private static final org.apache.thrift.protocol.TField USERCODES_FIELD_DESC = new org.apache.thrift.protocol.TField("usercodes", org.apache.thrift.protocol.TType.LIST, (short)1);
+
+    private static final org.apache.thrift.scheme.SchemeFactory STANDARD_SCHEME_FACTORY = new findByUsercodes_argsStandardSchemeFactory();
+    private static final org.apache.thrift.scheme.SchemeFactory TUPLE_SCHEME_FACTORY = new findByUsercodes_argsTupleSchemeFactory();
+
+    public java.util.List<String> usercodes; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      USERCODES((short)1, "usercodes");
+
+      private static final java.util.Map<String, _Fields> byName = new java.util.HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : java.util.EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 1: // USERCODES
+            return USERCODES;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    public static final java.util.Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      java.util.Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new java.util.EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.USERCODES, new org.apache.thrift.meta_data.FieldMetaData("usercodes", org.apache.thrift.TFieldRequirementType.DEFAULT,
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST,
+              new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING))));
+      metaDataMap = java.util.Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(findByUsercodes_args.class, metaDataMap);
+    }
+
+    public findByUsercodes_args() {
+    }
+
+    public findByUsercodes_args(
+      java.util.List<String> usercodes)
+    {
+      this();
+      this.usercodes = usercodes;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public findByUsercodes_args(findByUsercodes_args other) {
+      if (other.isSetUsercodes()) {
+        java.util.List<String> __this__usercodes = new java.util.ArrayList<String>(other.usercodes);
+        this.usercodes = __this__usercodes;
+      }
+    }
+
+    public findByUsercodes_args deepCopy() {
+      return new findByUsercodes_args(this);
+    }
+
+    @Override
+    public void clear() {
+      this.usercodes = null;
+    }
+
+    public int getUsercodesSize() {
+      return (this.usercodes == null) ? 0 : this.usercodes.size();
+    }
+
+    public java.util.Iterator<String> getUsercodesIterator() {
+      return (this.usercodes == null) ? null : this.usercodes.iterator();
+    }
+
+    public void addToUsercodes(String elem) {
+      if (this.usercodes == null) {
+        this.usercodes = new java.util.ArrayList<String>();
+      }
+      this.usercodes.add(elem);
+    }
+
+    public java.util.List<String> getUsercodes() {
+      return this.usercodes;
+    }
+
+    public findByUsercodes_args setUsercodes(java.util.List<String> usercodes) {
+      this.usercodes = usercodes;
+      return this;
+    }
+
+    public void unsetUsercodes() {
+      this.usercodes = null;
+    }
+
+    /** Returns true if field usercodes is set (has been assigned a value) and false otherwise */
+    public boolean isSetUsercodes() {
+      return this.usercodes != null;
+    }
+
+    public void setUsercodesIsSet(boolean value) {
+      if (!value) {
+        this.usercodes = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case USERCODES:
+        if (value == null) {
+          unsetUsercodes();
+        } else {
+          setUsercodes((java.util.List<String>)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case USERCODES:
+        return getUsercodes();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case USERCODES:
+        return isSetUsercodes();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof findByUsercodes_args)
+        return this.equals((findByUsercodes_args)that);
+      return false;
+    }
+
+    public boolean equals(findByUsercodes_args that) {
+      if (that == null)
+        return false;
+      if (this == that)
+        return true;
+
+      boolean this_present_usercodes = true && this.isSetUsercodes();
+      boolean that_present_usercodes = true && that.isSetUsercodes();
+      if (this_present_usercodes || that_present_usercodes) {
+        if (!(this_present_usercodes && that_present_usercodes))
+          return false;
+        if (!this.usercodes.equals(that.usercodes))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int hashCode = 1;
+
+      hashCode = hashCode * 8191 + ((isSetUsercodes()) ? 131071 : 524287);
+      if (isSetUsercodes())
+        hashCode = hashCode * 8191 + usercodes.hashCode();
+
+      return hashCode;
+    }
+
+    @Override
+    public int compareTo(findByUsercodes_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+
+      lastComparison = Boolean.valueOf(isSetUsercodes()).compareTo(other.isSetUsercodes());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetUsercodes()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.usercodes, other.usercodes);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      scheme(iprot).read(iprot, this);
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      scheme(oprot).write(oprot, this);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("findByUsercodes_args(");
+      boolean first = true;
+
+      sb.append("usercodes:");
+      if (this.usercodes == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.usercodes);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+      // check for sub-struct validity
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private static class findByUsercodes_argsStandardSchemeFactory implements org.apache.thrift.scheme.SchemeFactory {
+      public findByUsercodes_argsStandardScheme getScheme() {
+        return new findByUsercodes_argsStandardScheme();
+      }
+    }
+
+    private static class findByUsercodes_argsStandardScheme extends org.apache.thrift.scheme.StandardScheme<findByUsercodes_args> {
+
+      public void read(org.apache.thrift.protocol.TProtocol iprot, findByUsercodes_args struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TField schemeField;
+        iprot.readStructBegin();
+        while (true)
+        {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == org.apache.thrift.protocol.TType.STOP) {
+            break;
+          }
+          switch (schemeField.id) {
+            case 1: // USERCODES
+              if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+                {
+                  org.apache.thrift.protocol.TList _list8 = iprot.readListBegin();
+                  struct.usercodes = new java.util.ArrayList<String>(_list8.size);
+                  String _elem9;
+                  for (int _i10 = 0; _i10 < _list8.size; ++_i10)
+                  {
+                    _elem9 = iprot.readString();
+                    struct.usercodes.add(_elem9);
+                  }
+                  iprot.readListEnd();
+                }
+                struct.setUsercodesIsSet(true);
+              } else {
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            default:
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the validate method
+        struct.validate();
+      }
+
+      public void write(org.apache.thrift.protocol.TProtocol oprot, findByUsercodes_args struct) throws org.apache.thrift.TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        if (struct.usercodes != null) {
+          oprot.writeFieldBegin(USERCODES_FIELD_DESC);
+          {
+            oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, struct.usercodes.size()));
+            for (String _iter11 : struct.usercodes)
+            {
+              oprot.writeString(_iter11);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class findByUsercodes_argsTupleSchemeFactory implements org.apache.thrift.scheme.SchemeFactory {
+      public findByUsercodes_argsTupleScheme getScheme() {
+        return new findByUsercodes_argsTupleScheme();
+      }
+    }
+
+    private static class findByUsercodes_argsTupleScheme extends org.apache.thrift.scheme.TupleScheme<findByUsercodes_args> {
+
+      @Override
+      public void write(org.apache.thrift.protocol.TProtocol prot, findByUsercodes_args struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TTupleProtocol oprot = (org.apache.thrift.protocol.TTupleProtocol) prot;
+        java.util.BitSet optionals = new java.util.BitSet();
+        if (struct.isSetUsercodes()) {
+          optionals.set(0);
+        }
+        oprot.writeBitSet(optionals, 1);
+        if (struct.isSetUsercodes()) {
+          {
+            oprot.writeI32(struct.usercodes.size());
+            for (String _iter12 : struct.usercodes)
+            {
+              oprot.writeString(_iter12);
+            }
+          }
+        }
+      }
+
+      @Override
+      public void read(org.apache.thrift.protocol.TProtocol prot, findByUsercodes_args struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TTupleProtocol iprot = (org.apache.thrift.protocol.TTupleProtocol) prot;
+        java.util.BitSet incoming = iprot.readBitSet(1);
+        if (incoming.get(0)) {
+          {
+            org.apache.thrift.protocol.TList _list13 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
+            struct.usercodes = new java.util.ArrayList<String>(_list13.size);
+            String _elem14;
+            for (int _i15 = 0; _i15 < _list13.size; ++_i15)
+            {
+              _elem14 = iprot.readString();
+              struct.usercodes.add(_elem14);
+            }
+          }
+          struct.setUsercodesIsSet(true);
+        }
+      }
+    }
+
+    private static <S extends org.apache.thrift.scheme.IScheme> S scheme(org.apache.thrift.protocol.TProtocol proto) {
+      return (org.apache.thrift.scheme.StandardScheme.class.equals(proto.getScheme()) ? STANDARD_SCHEME_FACTORY : TUPLE_SCHEME_FACTORY).getScheme();
+    }
+  }
+
+  public static class findByUsercodes_result implements org.apache.thrift.TBase<findByUsercodes_result, findByUsercodes_result._Fields>, java.io.Serializable, Cloneable, Comparable<findByUsercodes_result>   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("findByUsercodes_result");
+
+    private static final org.apache.thrift.protocol.TField SUCCESS_FIELD_DESC = new org.apache.thrift.protocol.TField("success", org.apache.thrift.protocol.TType.MAP, (short)0);
+
+    private static final org.apache.thrift.scheme.SchemeFactory STANDARD_SCHEME_FACTORY = new findByUsercodes_resultStandardSchemeFactory();
+    private static final org.apache.thrift.scheme.SchemeFactory TUPLE_SCHEME_FACTORY = new findByUsercodes_resultTupleSchemeFactory();
+
+    public java.util.Map<String,User> success; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SUCCESS((short)0, "success");
+
+      private static final java.util.Map<String, _Fields> byName = new java.util.HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : java.util.EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 0: // SUCCESS
+            return SUCCESS;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    public static final java.util.Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      java.util.Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new java.util.EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SUCCESS, new org.apache.thrift.meta_data.FieldMetaData("success", org.apache.thrift.TFieldRequirementType.DEFAULT,
+          new org.apache.thrift.meta_data.MapMetaData(org.apache.thrift.protocol.TType.MAP,
+              new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING),
+              new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, User.class))));
+      metaDataMap = java.util.Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(findByUsercodes_result.class, metaDataMap);
+    }
+
+    public findByUsercodes_result() {
+    }
+
+    public findByUsercodes_result(
+      java.util.Map<String,User> success)
+    {
+      this();
+      this.success = success;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public findByUsercodes_result(findByUsercodes_result other) {
+      if (other.isSetSuccess()) {
+        java.util.Map<String,User> __this__success = new java.util.HashMap<String,User>(other.success.size());
+        for (java.util.Map.Entry<String, User> other_element : other.success.entrySet()) {
+
+          String other_element_key = other_element.getKey();
+          User other_element_value = other_element.getValue();
+
+          String __this__success_copy_key = other_element_key;
+
+          User __this__success_copy_value = new User(other_element_value);
+
+          __this__success.put(__this__success_copy_key, __this__success_copy_value);
+        }
+        this.success = __this__success;
+      }
+    }
+
+    public findByUsercodes_result deepCopy() {
+      return new findByUsercodes_result(this);
+    }
+
+    @Override
+    public void clear() {
+      this.success = null;
+    }
+
+    public int getSuccessSize() {
+      return (this.success == null) ? 0 : this.success.size();
+    }
+
+    public void putToSuccess(String key, User val) {
+      if (this.success == null) {
+        this.success = new java.util.HashMap<String,User>();
+      }
+      this.success.put(key, val);
+    }
+
+    public java.util.Map<String,User> getSuccess() {
+      return this.success;
+    }
+
+    public findByUsercodes_result setSuccess(java.util.Map<String,User> success) {
+      this.success = success;
+      return this;
+    }
+
+    public void unsetSuccess() {
+      this.success = null;
+    }
+
+    /** Returns true if field success is set (has been assigned a value) and false otherwise */
+    public boolean isSetSuccess() {
+      return this.success != null;
+    }
+
+    public void setSuccessIsSet(boolean value) {
+      if (!value) {
+        this.success = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SUCCESS:
+        if (value == null) {
+          unsetSuccess();
+        } else {
+          setSuccess((java.util.Map<String,User>)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SUCCESS:
+        return getSuccess();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SUCCESS:
+        return isSetSuccess();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof findByUsercodes_result)
+        return this.equals((findByUsercodes_result)that);
+      return false;
+    }
+
+    public boolean equals(findByUsercodes_result that) {
+      if (that == null)
+        return false;
+      if (this == that)
+        return true;
+
+      boolean this_present_success = true && this.isSetSuccess();
+      boolean that_present_success = true && that.isSetSuccess();
+      if (this_present_success || that_present_success) {
+        if (!(this_present_success && that_present_success))
+          return false;
+        if (!this.success.equals(that.success))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int hashCode = 1;
+
+      hashCode = hashCode * 8191 + ((isSetSuccess()) ? 131071 : 524287);
+      if (isSetSuccess())
+        hashCode = hashCode * 8191 + success.hashCode();
+
+      return hashCode;
+    }
+
+    @Override
+    public int compareTo(findByUsercodes_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+
+      lastComparison = Boolean.valueOf(isSetSuccess()).compareTo(other.isSetSuccess());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSuccess()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.success, other.success);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      scheme(iprot).read(iprot, this);
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      scheme(oprot).write(oprot, this);
+      }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("findByUsercodes_result(");
+      boolean first = true;
+
+      sb.append("success:");
+      if (this.success == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.success);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+      // check for sub-struct validity
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private static class findByUsercodes_resultStandardSchemeFactory implements org.apache.thrift.scheme.SchemeFactory {
+      public findByUsercodes_resultStandardScheme getScheme() {
+        return new findByUsercodes_resultStandardScheme();
+      }
+    }
+
+    private static class findByUsercodes_resultStandardScheme extends org.apache.thrift.scheme.StandardScheme<findByUsercodes_result> {
+
+      public void read(org.apache.thrift.protocol.TProtocol iprot, findByUsercodes_result struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TField schemeField;
+        iprot.readStructBegin();
+        while (true)
+        {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == org.apache.thrift.protocol.TType.STOP) {
+            break;
+          }
+          switch (schemeField.id) {
+            case 0: // SUCCESS
+              if (schemeField.type == org.apache.thrift.protocol.TType.MAP) {
+                {
+                  org.apache.thrift.protocol.TMap _map16 = iprot.readMapBegin();
+                  struct.success = new java.util.HashMap<String,User>(2*_map16.size);
+                  String _key17;
+                  User _val18;
+                  for (int _i19 = 0; _i19 < _map16.size; ++_i19)
+                  {
+                    _key17 = iprot.readString();
+                    _val18 = new User();
+                    _val18.read(iprot);
+                    struct.success.put(_key17, _val18);
+                  }
+                  iprot.readMapEnd();
+                }
+                struct.setSuccessIsSet(true);
+              } else {
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            default:
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the validate method
+        struct.validate();
+      }
+
+      public void write(org.apache.thrift.protocol.TProtocol oprot, findByUsercodes_result struct) throws org.apache.thrift.TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        if (struct.success != null) {
+          oprot.writeFieldBegin(SUCCESS_FIELD_DESC);
+          {
+            oprot.writeMapBegin(new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.STRING, org.apache.thrift.protocol.TType.STRUCT, struct.success.size()));
+            for (java.util.Map.Entry<String, User> _iter20 : struct.success.entrySet())
+            {
+              oprot.writeString(_iter20.getKey());
+              _iter20.getValue().write(oprot);
+            }
+            oprot.writeMapEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class findByUsercodes_resultTupleSchemeFactory implements org.apache.thrift.scheme.SchemeFactory {
+      public findByUsercodes_resultTupleScheme getScheme() {
+        return new findByUsercodes_resultTupleScheme();
+      }
+    }
+
+    private static class findByUsercodes_resultTupleScheme extends org.apache.thrift.scheme.TupleScheme<findByUsercodes_result> {
+
+      @Override
+      public void write(org.apache.thrift.protocol.TProtocol prot, findByUsercodes_result struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TTupleProtocol oprot = (org.apache.thrift.protocol.TTupleProtocol) prot;
+        java.util.BitSet optionals = new java.util.BitSet();
+        if (struct.isSetSuccess()) {
+          optionals.set(0);
+        }
+        oprot.writeBitSet(optionals, 1);
+        if (struct.isSetSuccess()) {
+          {
+            oprot.writeI32(struct.success.size());
+            for (java.util.Map.Entry<String, User> _iter21 : struct.success.entrySet())
+            {
+              oprot.writeString(_iter21.getKey());
+              _iter21.getValue().write(oprot);
+            }
+          }
+        }
+      }
+
+      @Override
+      public void read(org.apache.thrift.protocol.TProtocol prot, findByUsercodes_result struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TTupleProtocol iprot = (org.apache.thrift.protocol.TTupleProtocol) prot;
+        java.util.BitSet incoming = iprot.readBitSet(1);
+        if (incoming.get(0)) {
+          {
+            org.apache.thrift.protocol.TMap _map22 = new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.STRING, org.apache.thrift.protocol.TType.STRUCT, iprot.readI32());
+            struct.success = new java.util.HashMap<String,User>(2*_map22.size);
+            String _key23;
+            User _val24;
+            for (int _i25 = 0; _i25 < _map22.size; ++_i25)
+            {
+              _key23 = iprot.readString();
+              _val24 = new User();
+              _val24.read(iprot);
+              struct.success.put(_key23, _val24);
+            }
+          }
+          struct.setSuccessIsSet(true);
+        }
+      }
+    }
+
+    private static <S extends org.apache.thrift.scheme.IScheme> S scheme(org.apache.thrift.protocol.TProtocol proto) {
+      return (org.apache.thrift.scheme.StandardScheme.class.equals(proto.getScheme()) ? STANDARD_SCHEME_FACTORY : TUPLE_SCHEME_FACTORY).getScheme();
+    }
+  }
+
+  public static class existAll_args implements org.apache.thrift.TBase<existAll_args, existAll_args._Fields>, java.io.Serializable, Cloneable, Comparable<existAll_args>   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("existAll_args");
+
+    private static final org.apache.thrift.protocol.TField USERCODES_FIELD_DESC = new org.apache.thrift.protocol.TField("usercodes", org.apache.thrift.protocol.TType.LIST, (short)1);
+
+    private static final org.apache.thrift.scheme.SchemeFactory STANDARD_SCHEME_FACTORY = new existAll_argsStandardSchemeFactory();
+    private static final org.apache.thrift.scheme.SchemeFactory TUPLE_SCHEME_FACTORY = new existAll_argsTupleSchemeFactory();
+
+    public java.util.List<String> usercodes; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      USERCODES((short)1, "usercodes");
+
+      private static final java.util.Map<String, _Fields> byName = new java.util.HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : java.util.EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 1: // USERCODES
+            return USERCODES;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    public static final java.util.Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      java.util.Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new java.util.EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.USERCODES, new org.apache.thrift.meta_data.FieldMetaData("usercodes", org.apache.thrift.TFieldRequirementType.DEFAULT,
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST,
+              new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING))));
+      metaDataMap = java.util.Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(existAll_args.class, metaDataMap);
+    }
+
+    public existAll_args() {
+    }
+
+    public existAll_args(
+      java.util.List<String> usercodes)
+    {
+      this();
+      this.usercodes = usercodes;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public existAll_args(existAll_args other) {
+      if (other.isSetUsercodes()) {
+        java.util.List<String> __this__usercodes = new java.util.ArrayList<String>(other.usercodes);
+        this.usercodes = __this__usercodes;
+      }
+    }
+
+    public existAll_args deepCopy() {
+      return new existAll_args(this);
+    }
+
+    @Override
+    public void clear() {
+      this.usercodes = null;
+    }
+
+    public int getUsercodesSize() {
+      return (this.usercodes == null) ? 0 : this.usercodes.size();
+    }
+
+    public java.util.Iterator<String> getUsercodesIterator() {
+      return (this.usercodes == null) ? null : this.usercodes.iterator();
+    }
+
+    public void addToUsercodes(String elem) {
+      if (this.usercodes == null) {
+        this.usercodes = new java.util.ArrayList<String>();
+      }
+      this.usercodes.add(elem);
+    }
+
+    public java.util.List<String> getUsercodes() {
+      return this.usercodes;
+    }
+
+    public existAll_args setUsercodes(java.util.List<String> usercodes) {
+      this.usercodes = usercodes;
+      return this;
+    }
+
+    public void unsetUsercodes() {
+      this.usercodes = null;
+    }
+
+    /** Returns true if field usercodes is set (has been assigned a value) and false otherwise */
+    public boolean isSetUsercodes() {
+      return this.usercodes != null;
+    }
+
+    public void setUsercodesIsSet(boolean value) {
+      if (!value) {
+        this.usercodes = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case USERCODES:
+        if (value == null) {
+          unsetUsercodes();
+        } else {
+          setUsercodes((java.util.List<String>)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case USERCODES:
+        return getUsercodes();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case USERCODES:
+        return isSetUsercodes();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof existAll_args)
+        return this.equals((existAll_args)that);
+      return false;
+    }
+
+    public boolean equals(existAll_args that) {
+      if (that == null)
+        return false;
+      if (this == that)
+        return true;
+
+      boolean this_present_usercodes = true && this.isSetUsercodes();
+      boolean that_present_usercodes = true && that.isSetUsercodes();
+      if (this_present_usercodes || that_present_usercodes) {
+        if (!(this_present_usercodes && that_present_usercodes))
+          return false;
+        if (!this.usercodes.equals(that.usercodes))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int hashCode = 1;
+
+      hashCode = hashCode * 8191 + ((isSetUsercodes()) ? 131071 : 524287);
+      if (isSetUsercodes())
+        hashCode = hashCode * 8191 + usercodes.hashCode();
+
+      return hashCode;
+    }
+
+    @Override
+    public int compareTo(existAll_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+
+      lastComparison = Boolean.valueOf(isSetUsercodes()).compareTo(other.isSetUsercodes());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetUsercodes()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.usercodes, other.usercodes);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      scheme(iprot).read(iprot, this);
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      scheme(oprot).write(oprot, this);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("existAll_args(");
+      boolean first = true;
+
+      sb.append("usercodes:");
+      if (this.usercodes == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.usercodes);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+      // check for sub-struct validity
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private static class existAll_argsStandardSchemeFactory implements org.apache.thrift.scheme.SchemeFactory {
+      public existAll_argsStandardScheme getScheme() {
+        return new existAll_argsStandardScheme();
+      }
+    }
+
+    private static class existAll_argsStandardScheme extends org.apache.thrift.scheme.StandardScheme<existAll_args> {
+
+      public void read(org.apache.thrift.protocol.TProtocol iprot, existAll_args struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TField schemeField;
+        iprot.readStructBegin();
+        while (true)
+        {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == org.apache.thrift.protocol.TType.STOP) {
+            break;
+          }
+          switch (schemeField.id) {
+            case 1: // USERCODES
+              if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+                {
+                  org.apache.thrift.protocol.TList _list26 = iprot.readListBegin();
+                  struct.usercodes = new java.util.ArrayList<String>(_list26.size);
+                  String _elem27;
+                  for (int _i28 = 0; _i28 < _list26.size; ++_i28)
+                  {
+                    _elem27 = iprot.readString();
+                    struct.usercodes.add(_elem27);
+                  }
+                  iprot.readListEnd();
+                }
+                struct.setUsercodesIsSet(true);
+              } else {
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            default:
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the validate method
+        struct.validate();
+      }
+
+      public void write(org.apache.thrift.protocol.TProtocol oprot, existAll_args struct) throws org.apache.thrift.TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        if (struct.usercodes != null) {
+          oprot.writeFieldBegin(USERCODES_FIELD_DESC);
+          {
+            oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, struct.usercodes.size()));
+            for (String _iter29 : struct.usercodes)
+            {
+              oprot.writeString(_iter29);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class existAll_argsTupleSchemeFactory implements org.apache.thrift.scheme.SchemeFactory {
+      public existAll_argsTupleScheme getScheme() {
+        return new existAll_argsTupleScheme();
+      }
+    }
+
+    private static class existAll_argsTupleScheme extends org.apache.thrift.scheme.TupleScheme<existAll_args> {
+
+      @Override
+      public void write(org.apache.thrift.protocol.TProtocol prot, existAll_args struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TTupleProtocol oprot = (org.apache.thrift.protocol.TTupleProtocol) prot;
+        java.util.BitSet optionals = new java.util.BitSet();
+        if (struct.isSetUsercodes()) {
+          optionals.set(0);
+        }
+        oprot.writeBitSet(optionals, 1);
+        if (struct.isSetUsercodes()) {
+          {
+            oprot.writeI32(struct.usercodes.size());
+            for (String _iter30 : struct.usercodes)
+            {
+              oprot.writeString(_iter30);
+            }
+          }
+        }
+      }
+
+      @Override
+      public void read(org.apache.thrift.protocol.TProtocol prot, existAll_args struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TTupleProtocol iprot = (org.apache.thrift.protocol.TTupleProtocol) prot;
+        java.util.BitSet incoming = iprot.readBitSet(1);
+        if (incoming.get(0)) {
+          {
+            org.apache.thrift.protocol.TList _list31 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
+            struct.usercodes = new java.util.ArrayList<String>(_list31.size);
+            String _elem32;
+            for (int _i33 = 0; _i33 < _list31.size; ++_i33)
+            {
+              _elem32 = iprot.readString();
+              struct.usercodes.add(_elem32);
+            }
+          }
+          struct.setUsercodesIsSet(true);
+        }
+      }
+    }
+
+    private static <S extends org.apache.thrift.scheme.IScheme> S scheme(org.apache.thrift.protocol.TProtocol proto) {
+      return (org.apache.thrift.scheme.StandardScheme.class.equals(proto.getScheme()) ? STANDARD_SCHEME_FACTORY : TUPLE_SCHEME_FACTORY).getScheme();
+    }
+  }
+
+  public static class existAll_result implements org.apache.thrift.TBase<existAll_result, existAll_result._Fields>, java.io.Serializable, Cloneable, Comparable<existAll_result>   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("existAll_result");
+
+    private static final org.apache.thrift.protocol.TField SUCCESS_FIELD_DESC = new org.apache.thrift.protocol.TField("success", org.apache.thrift.protocol.TType.STRING, (short)0);
+
+    private static final org.apache.thrift.scheme.SchemeFactory STANDARD_SCHEME_FACTORY = new existAll_resultStandardSchemeFactory();
+    private static final org.apache.thrift.scheme.SchemeFactory TUPLE_SCHEME_FACTORY = new existAll_resultTupleSchemeFactory();
+
+    public java.nio.ByteBuffer success; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SUCCESS((short)0, "success");
+
+      private static final java.util.Map<String, _Fields> byName = new java.util.HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : java.util.EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 0: // SUCCESS
+            return SUCCESS;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    public static final java.util.Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      java.util.Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new java.util.EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SUCCESS, new org.apache.thrift.meta_data.FieldMetaData("success", org.apache.thrift.TFieldRequirementType.DEFAULT,
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING        , true)));
+      metaDataMap = java.util.Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(existAll_result.class, metaDataMap);
+    }
+
+    public existAll_result() {
+    }
+
+    public existAll_result(
+      java.nio.ByteBuffer success)
+    {
+      this();
+      this.success = org.apache.thrift.TBaseHelper.copyBinary(success);
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public existAll_result(existAll_result other) {
+      if (other.isSetSuccess()) {
+        this.success = org.apache.thrift.TBaseHelper.copyBinary(other.success);
+      }
+    }
+
+    public existAll_result deepCopy() {
+      return new existAll_result(this);
+    }
+
+    @Override
+    public void clear() {
+      this.success = null;
+    }
+
+    public byte[] getSuccess() {
+      setSuccess(org.apache.thrift.TBaseHelper.rightSize(success));
+      return success == null ? null : success.array();
+    }
+
+    public java.nio.ByteBuffer bufferForSuccess() {
+      return org.apache.thrift.TBaseHelper.copyBinary(success);
+    }
+
+    public existAll_result setSuccess(byte[] success) {
+      this.success = success == null ? (java.nio.ByteBuffer)null : java.nio.ByteBuffer.wrap(success.clone());
+      return this;
+    }
+
+    public existAll_result setSuccess(java.nio.ByteBuffer success) {
+      this.success = org.apache.thrift.TBaseHelper.copyBinary(success);
+      return this;
+    }
+
+    public void unsetSuccess() {
+      this.success = null;
+    }
+
+    /** Returns true if field success is set (has been assigned a value) and false otherwise */
+    public boolean isSetSuccess() {
+      return this.success != null;
+    }
+
+    public void setSuccessIsSet(boolean value) {
+      if (!value) {
+        this.success = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SUCCESS:
+        if (value == null) {
+          unsetSuccess();
+        } else {
+          if (value instanceof byte[]) {
+            setSuccess((byte[])value);
+          } else {
+            setSuccess((java.nio.ByteBuffer)value);
+          }
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SUCCESS:
+        return getSuccess();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SUCCESS:
+        return isSetSuccess();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof existAll_result)
+        return this.equals((existAll_result)that);
+      return false;
+    }
+
+    public boolean equals(existAll_result that) {
+      if (that == null)
+        return false;
+      if (this == that)
+        return true;
+
+      boolean this_present_success = true && this.isSetSuccess();
+      boolean that_present_success = true && that.isSetSuccess();
+      if (this_present_success || that_present_success) {
+        if (!(this_present_success && that_present_success))
+          return false;
+        if (!this.success.equals(that.success))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int hashCode = 1;
+
+      hashCode = hashCode * 8191 + ((isSetSuccess()) ? 131071 : 524287);
+      if (isSetSuccess())
+        hashCode = hashCode * 8191 + success.hashCode();
+
+      return hashCode;
+    }
+
+    @Override
+    public int compareTo(existAll_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+
+      lastComparison = Boolean.valueOf(isSetSuccess()).compareTo(other.isSetSuccess());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSuccess()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.success, other.success);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      scheme(iprot).read(iprot, this);
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      scheme(oprot).write(oprot, this);
+      }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("existAll_result(");
+      boolean first = true;
+
+      sb.append("success:");
+      if (this.success == null) {
+        sb.append("null");
+      } else {
+        org.apache.thrift.TBaseHelper.toString(this.success, sb);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+      // check for sub-struct validity
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private static class existAll_resultStandardSchemeFactory implements org.apache.thrift.scheme.SchemeFactory {
+      public existAll_resultStandardScheme getScheme() {
+        return new existAll_resultStandardScheme();
+      }
+    }
+
+    private static class existAll_resultStandardScheme extends org.apache.thrift.scheme.StandardScheme<existAll_result> {
+
+      public void read(org.apache.thrift.protocol.TProtocol iprot, existAll_result struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TField schemeField;
+        iprot.readStructBegin();
+        while (true)
+        {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == org.apache.thrift.protocol.TType.STOP) {
+            break;
+          }
+          switch (schemeField.id) {
+            case 0: // SUCCESS
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+                struct.success = iprot.readBinary();
+                struct.setSuccessIsSet(true);
+              } else {
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            default:
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the validate method
+        struct.validate();
+      }
+
+      public void write(org.apache.thrift.protocol.TProtocol oprot, existAll_result struct) throws org.apache.thrift.TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        if (struct.success != null) {
+          oprot.writeFieldBegin(SUCCESS_FIELD_DESC);
+          oprot.writeBinary(struct.success);
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class existAll_resultTupleSchemeFactory implements org.apache.thrift.scheme.SchemeFactory {
+      public existAll_resultTupleScheme getScheme() {
+        return new existAll_resultTupleScheme();
+      }
+    }
+
+    private static class existAll_resultTupleScheme extends org.apache.thrift.scheme.TupleScheme<existAll_result> {
+
+      @Override
+      public void write(org.apache.thrift.protocol.TProtocol prot, existAll_result struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TTupleProtocol oprot = (org.apache.thrift.protocol.TTupleProtocol) prot;
+        java.util.BitSet optionals = new java.util.BitSet();
+        if (struct.isSetSuccess()) {
+          optionals.set(0);
+        }
+        oprot.writeBitSet(optionals, 1);
+        if (struct.isSetSuccess()) {
+          oprot.writeBinary(struct.success);
+        }
+      }
+
+      @Override
+      public void read(org.apache.thrift.protocol.TProtocol prot, existAll_result struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TTupleProtocol iprot = (org.apache.thrift.protocol.TTupleProtocol) prot;
+        java.util.BitSet incoming = iprot.readBitSet(1);
+        if (incoming.get(0)) {
+          struct.success = iprot.readBinary();
+          struct.setSuccessIsSet(true);
+        }
+      }
+    }
+
+    private static <S extends org.apache.thrift.scheme.IScheme> S scheme(org.apache.thrift.protocol.TProtocol proto) {
+      return (org.apache.thrift.scheme.StandardScheme.class.equals(proto.getScheme()) ? STANDARD_SCHEME_FACTORY : TUPLE_SCHEME_FACTORY).getScheme();
+    }
+  }
+
 }
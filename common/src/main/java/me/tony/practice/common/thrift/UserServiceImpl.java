@@ -1,29 +1,55 @@
 package me.tony.practice.common.thrift;
 
 import org.apache.thrift.TException;
-import org.apache.thrift.async.AsyncMethodCallback;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by tony on 2017/1/31.
  */
-public class UserServiceImpl implements UserService.Iface, UserService.AsyncIface {
+public class UserServiceImpl implements UserService.Iface {
 
-    private static final HashMap<String, User> datasource = new HashMap<>();
+    private static final UserStore sample = new UserStore();
 
     static {
-        datasource.put("1001", new User("Tony", Gender.MALE, "1001", 28));
-        datasource.put("1002", new User("Jim", Gender.MALE, "1002", 22));
-        datasource.put("1003", new User("Mary", Gender.FEMALE, "1003", 23));
-        datasource.put("1004", new User("Jim", Gender.MALE, "1004", 26));
-        datasource.put("1005", new User("Lily", Gender.FEMALE, "1005", 18));
-        datasource.put("1006", new User("Alex", Gender.MALE, "1006", 33));
-        datasource.put("1007", new User("Mike", Gender.MALE, "1007", 27));
-        datasource.put("1008", new User("Lucy", Gender.FEMALE, "1008", 40));
-        datasource.put("1009", new User("Bill", Gender.MALE, "1009", 31));
+        sample.add(new User("Tony", Gender.MALE, "1001", 28));
+        sample.add(new User("Jim", Gender.MALE, "1002", 22));
+        sample.add(new User("Mary", Gender.FEMALE, "1003", 23));
+        sample.add(new User("Jim", Gender.MALE, "1004", 26));
+        sample.add(new User("Lily", Gender.FEMALE, "1005", 18));
+        sample.add(new User("Alex", Gender.MALE, "1006", 33));
+        sample.add(new User("Mike", Gender.MALE, "1007", 27));
+        sample.add(new User("Lucy", Gender.FEMALE, "1008", 40));
+        sample.add(new User("Bill", Gender.MALE, "1009", 31));
+    }
+
+    private final UserStore datasource;
+
+    /**
+     * Serves the nine sample users.
+     */
+    public UserServiceImpl() {
+        this(sample);
+    }
+
+    UserServiceImpl(UserStore datasource) {
+        this.datasource = datasource;
+    }
+
+    /**
+     * Serves the users of a snapshot written by {@link #snapshot(Path)}, see {@link UserSnapshot}.
+     */
+    public static UserServiceImpl fromSnapshot(Path snapshot) throws IOException {
+        return new UserServiceImpl(UserSnapshot.load(snapshot));
+    }
+
+    public void snapshot(Path snapshot) throws IOException {
+        UserSnapshot.write(datasource, snapshot);
     }
 
     @Override
@@ -39,7 +65,7 @@ public class UserServiceImpl implements UserService.Iface, UserService.AsyncIfac
         if (null == usercode) {
             throw new RuntimeException("usercode is null");
         }
-        return datasource.containsKey(usercode);
+        return datasource.contains(usercode);
     }
 
     @Override
@@ -47,36 +73,32 @@ public class UserServiceImpl implements UserService.Iface, UserService.AsyncIfac
         if (null == name) {
             throw new RuntimeException("name is null");
         }
-        List<User> result = new ArrayList<>();
-        for (User user : datasource.values()) {
-            if (name.equals(user.getName())) {
-                result.add(user);
-            }
-        }
-        return result;
+        return datasource.findByName(name);
     }
 
     @Override
-    public void findByUsercode(String usercode, AsyncMethodCallback<User> resultHandler) throws TException {
-        if (null == usercode) {
-            throw new RuntimeException("usercode is null");
+    public Map<String, User> findByUsercodes(List<String> usercodes) throws TException {
+        if (null == usercodes) {
+            throw new RuntimeException("usercodes is null");
         }
-        resultHandler.onComplete(findByUsercode(usercode));
+        return datasource.getAll(usercodes);
     }
 
+    /**
+     * @see #existing(ByteBuffer)
+     */
     @Override
-    public void exist(String usercode, AsyncMethodCallback<Boolean> resultHandler) throws TException {
-        if (null == usercode) {
-            throw new RuntimeException("usercode is null");
+    public ByteBuffer existAll(List<String> usercodes) throws TException {
+        if (null == usercodes) {
+            throw new RuntimeException("usercodes is null");
         }
-        resultHandler.onComplete(exist(usercode));
+        return ByteBuffer.wrap(datasource.containsAll(usercodes).toByteArray());
     }
 
-    @Override
-    public void findByName(String name, AsyncMethodCallback<List<User>> resultHandler) throws TException {
-        if (null == name) {
-            throw new RuntimeException("name is null");
-        }
-        resultHandler.onComplete(findByName(name));
+    /**
+     * Decodes an {@link #existAll} reply; bit i is set if the i-th usercode exists.
+     */
+    public static BitSet existing(ByteBuffer existAll) {
+        return BitSet.valueOf(existAll);
     }
 }
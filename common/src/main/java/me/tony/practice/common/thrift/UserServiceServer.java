@@ -0,0 +1,321 @@
+package me.tony.practice.common.thrift;
+
+import me.tony.practice.common.Base;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.server.*;
+import org.apache.thrift.transport.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Builds a {@link TServer} for {@link UserService} in one of several threading modes, and the
+ * matching client side transport and protocol.
+ * The non-blocking modes speak framed transport only; the blocking ones default to unframed.
+ */
+public class UserServiceServer extends Base {
+
+    public enum Mode {
+        /**
+         * one connection at a time, what {@link ThriftTest#serve} started with
+         */
+        SIMPLE(false),
+        /**
+         * an acceptor, a few selector threads doing the socket IO and a worker pool running the handler
+         */
+        THREADED_SELECTOR(true),
+        /**
+         * one selector thread and a worker pool running {@link UserService.AsyncProcessor}
+         */
+        HSHA(true),
+        /**
+         * selector threads decode and hand every call to {@link AsyncUserServiceImpl}, which runs it
+         * on the worker pool and writes the reply when done; a slow lookup holds a worker, not a selector
+         */
+        ASYNC(true),
+        /**
+         * blocking IO with a thread per connection, virtual threads when the JVM has them
+         */
+        THREAD_PER_CONNECTION(false);
+
+        private final boolean framed;
+
+        Mode(boolean framed) {
+            this.framed = framed;
+        }
+
+        public boolean framed() {
+            return framed;
+        }
+    }
+
+    public enum Protocol {
+        BINARY {
+            @Override
+            public TProtocolFactory factory() {
+                return new TBinaryProtocol.Factory();
+            }
+        },
+        /**
+         * zigzag varints for integers and field id deltas, about 40% fewer bytes for a {@link User} reply
+         */
+        COMPACT {
+            @Override
+            public TProtocolFactory factory() {
+                return new TCompactProtocol.Factory();
+            }
+        };
+
+        public abstract TProtocolFactory factory();
+    }
+
+    public enum Framing {
+        NONE,
+        /**
+         * {@link TFramedTransport}, a new array for every frame read
+         */
+        FRAMED,
+        /**
+         * {@link PooledFramedTransport}, same wire format with buffers reused per connection.
+         * The non-blocking servers manage their own frame buffers, so there it only changes the client.
+         */
+        POOLED
+    }
+
+    static final long START_TIMEOUT_MILLIS = 10000;
+
+    private final Mode mode;
+    private Protocol protocol = Protocol.BINARY;
+    private Framing framing;
+    private int port = ThriftTest.PORT;
+    private int selectorThreads = 2;
+    private int workerThreads = Runtime.getRuntime().availableProcessors() * 2;
+    private int maxInFlight = 1024;
+    private UserService.Iface handler;
+
+    public UserServiceServer(Mode mode) {
+        this.mode = mode;
+    }
+
+    public UserServiceServer protocol(Protocol protocol) {
+        this.protocol = protocol;
+        return this;
+    }
+
+    /**
+     * @throws IllegalArgumentException for {@link Framing#NONE} on a non-blocking mode
+     */
+    public UserServiceServer framing(Framing framing) {
+        if (framing == Framing.NONE && mode.framed()) {
+            throw new IllegalArgumentException(mode + " needs a framed transport");
+        }
+        this.framing = framing;
+        return this;
+    }
+
+    public Framing framing() {
+        if (framing != null) {
+            return framing;
+        }
+        return mode.framed() ? Framing.FRAMED : Framing.NONE;
+    }
+
+    public UserServiceServer port(int port) {
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * used by {@link Mode#THREADED_SELECTOR} and {@link Mode#ASYNC}
+     */
+    public UserServiceServer selectorThreads(int selectorThreads) {
+        this.selectorThreads = selectorThreads;
+        return this;
+    }
+
+    /**
+     * used by {@link Mode#THREADED_SELECTOR}, {@link Mode#HSHA} and {@link Mode#ASYNC};
+     * 0 runs the handler on the selector thread, except for ASYNC where it must be positive
+     */
+    public UserServiceServer workerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+        return this;
+    }
+
+    /**
+     * used by {@link Mode#HSHA} and {@link Mode#ASYNC}: calls queued past this are rejected.
+     * ASYNC answers them with an {@link org.apache.thrift.TApplicationException#INTERNAL_ERROR};
+     * HSHA queues undecoded frames for its workers, and libthrift closes the connection of a frame
+     * that does not fit.
+     */
+    public UserServiceServer maxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * what the server answers from, {@link UserServiceImpl} by default
+     */
+    public UserServiceServer handler(UserService.Iface handler) {
+        this.handler = handler;
+        return this;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public TServer build() throws TTransportException {
+        UserService.Iface handler = this.handler != null ? this.handler : new UserServiceImpl();
+        switch (mode) {
+            case THREADED_SELECTOR:
+                return selectorServer(new TThreadedSelectorServer.Args(new TNonblockingServerSocket(port))
+                        .selectorThreads(selectorThreads)
+                        .workerThreads(workerThreads)
+                        .protocolFactory(protocol.factory())
+                        .processor(new UserService.Processor<UserService.Iface>(handler)));
+            case HSHA:
+                // the server's own pool is already off the selector, so lookups run inline on it,
+                // and its queue is where calls wait, so that is what maxInFlight bounds
+                return new THsHaServer(new THsHaServer.Args(new TNonblockingServerSocket(port))
+                        .executorService(new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+                                new ArrayBlockingQueue<Runnable>(maxInFlight)))
+                        .protocolFactory(protocol.factory())
+                        .processor(new UserService.AsyncProcessor<UserService.AsyncIface>(
+                                new AsyncUserServiceImpl(handler, Runnable::run, maxInFlight))));
+            case ASYNC:
+                return selectorServer(new TThreadedSelectorServer.Args(new TNonblockingServerSocket(port))
+                        .selectorThreads(selectorThreads)
+                        .workerThreads(0)
+                        .protocolFactory(protocol.factory())
+                        .processor(new UserService.AsyncProcessor<UserService.AsyncIface>(
+                                AsyncUserServiceImpl.bounded(handler, workerThreads, maxInFlight))));
+            case THREAD_PER_CONNECTION:
+                return new TThreadPoolServer(new TThreadPoolServer.Args(new TServerSocket(port))
+                        .executorService(connectionExecutor())
+                        .transportFactory(serverTransportFactory())
+                        .protocolFactory(protocol.factory())
+                        .processor(new UserService.Processor<UserService.Iface>(handler)));
+            default:
+                return new TSimpleServer(new TServer.Args(new TServerSocket(port))
+                        .transportFactory(serverTransportFactory())
+                        .protocolFactory(protocol.factory())
+                        .processor(new UserService.Processor<UserService.Iface>(handler)));
+        }
+    }
+
+    /**
+     * Without workers libthrift 0.10 has no invoker pool, and stop() would trip over it.
+     */
+    private static TThreadedSelectorServer selectorServer(TThreadedSelectorServer.Args args) {
+        if (args.getWorkerThreads() > 0) {
+            return new TThreadedSelectorServer(args);
+        }
+        return new TThreadedSelectorServer(args) {
+            @Override
+            protected void gracefullyShutdownInvokerPool() {
+            }
+        };
+    }
+
+    /**
+     * Looked up reflectively since the project compiles for Java 8.
+     */
+    static ExecutorService connectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.info("virtual threads unavailable, falling back to a cached thread pool");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private TTransportFactory serverTransportFactory() {
+        switch (framing()) {
+            case FRAMED:
+                return new TFramedTransport.Factory();
+            case POOLED:
+                return new PooledFramedTransport.Factory();
+            default:
+                return new TTransportFactory();
+        }
+    }
+
+    /**
+     * Client side transport matching the server, not yet opened.
+     */
+    public TTransport clientTransport(String host) {
+        return clientTransport(new TSocket(host, port));
+    }
+
+    /**
+     * Frames the given socket the way the server expects.
+     */
+    public TTransport clientTransport(TTransport socket) {
+        switch (framing()) {
+            case FRAMED:
+                return new TFramedTransport(socket);
+            case POOLED:
+                return new PooledFramedTransport(socket);
+            default:
+                return socket;
+        }
+    }
+
+    public TProtocol clientProtocol(TTransport transport) {
+        return protocol.factory().getProtocol(transport);
+    }
+
+    /**
+     * Starts the server on a daemon thread and returns once it accepts connections.
+     *
+     * @throws TTransportException if it is not serving within {@link #START_TIMEOUT_MILLIS}
+     */
+    public TServer start() throws TTransportException, InterruptedException {
+        final TServer server = build();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                server.serve();
+            }
+        }, "thrift-" + mode.name().toLowerCase());
+        thread.setDaemon(true);
+        thread.start();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(START_TIMEOUT_MILLIS);
+        while (!server.isServing()) {
+            if (!thread.isAlive() || deadline - System.nanoTime() <= 0) {
+                server.stop();
+                throw new TTransportException(mode + " server on port " + port + " did not start");
+            }
+            Thread.sleep(10);
+        }
+        logger.info("Thrift Server Start, mode: {}, protocol: {}, framing: {}, port: {}", mode, protocol, framing(), port);
+        return server;
+    }
+
+    /**
+     * Args: mode, optionally followed by port, selector threads, worker threads, protocol and framing.
+     */
+    public static void main(String[] args) throws TTransportException {
+        UserServiceServer launcher = new UserServiceServer(args.length > 0 ? Mode.valueOf(args[0]) : Mode.THREADED_SELECTOR);
+        if (args.length > 1) {
+            launcher.port(Integer.parseInt(args[1]));
+        }
+        if (args.length > 2) {
+            launcher.selectorThreads(Integer.parseInt(args[2]));
+        }
+        if (args.length > 3) {
+            launcher.workerThreads(Integer.parseInt(args[3]));
+        }
+        if (args.length > 4) {
+            launcher.protocol(Protocol.valueOf(args[4]));
+        }
+        if (args.length > 5) {
+            launcher.framing(Framing.valueOf(args[5]));
+        }
+        logger.info("Thrift Server Start, mode: {}, protocol: {}, framing: {}, port: {}", launcher.mode, launcher.protocol, launcher.framing(), launcher.port);
+        launcher.build().serve();
+    }
+}
@@ -0,0 +1,90 @@
+package me.tony.practice.common.thrift;
+
+import me.tony.practice.common.Base;
+import org.apache.thrift.TException;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Servers built by {@link UserServiceServer}, on a free port each.
+ */
+public class UserServiceServerTest extends Base {
+
+    /**
+     * One worker held by a slow lookup and room for one more call: of five further calls, one
+     * waits its turn and the other four lose their connections.
+     */
+    @Test
+    public void hshaRejectsPastMaxInFlight() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        UserServiceServer launcher = new UserServiceServer(UserServiceServer.Mode.HSHA)
+                .workerThreads(1)
+                .maxInFlight(1)
+                .port(freePort())
+                .handler(new UserServiceImpl() {
+                    @Override
+                    public User findByUsercode(String usercode) throws TException {
+                        entered.countDown();
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            throw new TException(e);
+                        }
+                        return super.findByUsercode(usercode);
+                    }
+                });
+        TServer server = launcher.start();
+        int calls = 6;
+        ExecutorService clients = Executors.newFixedThreadPool(calls);
+        final AtomicInteger dropped = new AtomicInteger();
+        try {
+            Callable<User> call = () -> {
+                TTransport transport = launcher.clientTransport("127.0.0.1");
+                try {
+                    transport.open();
+                    return new UserService.Client(launcher.clientProtocol(transport)).findByUsercode("1001");
+                } catch (TTransportException e) {
+                    dropped.incrementAndGet();
+                    throw e;
+                } finally {
+                    transport.close();
+                }
+            };
+            Future<User> first = clients.submit(call);
+            assertTrue(entered.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < calls; i++) {
+                clients.submit(call);
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (dropped.get() < calls - 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(calls - 2, dropped.get());
+            release.countDown();
+            assertEquals("1001", first.get(10, TimeUnit.SECONDS).getUsercode());
+            clients.shutdown();
+            assertTrue(clients.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals(calls - 2, dropped.get());
+        } finally {
+            release.countDown();
+            clients.shutdownNow();
+            server.stop();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package me.tony.practice.common.thrift;
+
+import me.tony.practice.common.Base;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.*;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/**
+ * The findByUsercodes and existAll parts of {@link UserService} were written by hand after the
+ * generator's output, see the file header; these pin them down until the file is regenerated.
+ */
+public class UserServiceTest extends Base {
+
+    private static final List<Function<TMemoryBuffer, TProtocol>> PROTOCOLS = Arrays.asList(
+            TBinaryProtocol::new, TCompactProtocol::new, TTupleProtocol::new);
+
+    private static final List<String> USERCODES = Arrays.asList("1001", "9999", "1003", "用户");
+
+    @Test
+    public void structsRoundTrip() throws TException {
+        Map<String, User> users = new HashMap<>();
+        users.put("1001", new User("Jim", Gender.MALE, "1001", 20));
+        users.put("用户", new User("Lily", Gender.FEMALE, "用户", 30));
+        byte[] bits = {5};
+        List<TBase<?, ?>> structs = Arrays.<TBase<?, ?>>asList(
+                new UserService.findByUsercodes_args(USERCODES),
+                new UserService.findByUsercodes_result(users),
+                new UserService.findByUsercodes_result(),
+                new UserService.existAll_args(USERCODES),
+                new UserService.existAll_result(ByteBuffer.wrap(bits)),
+                new UserService.existAll_result());
+        for (Function<TMemoryBuffer, TProtocol> protocol : PROTOCOLS) {
+            for (TBase<?, ?> struct : structs) {
+                TMemoryBuffer buffer = new TMemoryBuffer(64);
+                struct.write(protocol.apply(buffer));
+                TBase<?, ?> read = struct.deepCopy();
+                read.clear();
+                read.read(protocol.apply(buffer));
+                assertEquals(struct, read);
+                assertEquals(struct.hashCode(), read.hashCode());
+                assertEquals(struct, struct.deepCopy());
+            }
+        }
+    }
+
+    /**
+     * Client and processor over memory buffers, one call at a time.
+     */
+    @Test
+    public void clientAndProcessor() throws TException {
+        UserService.Processor<UserService.Iface> processor = new UserService.Processor<>(new UserServiceImpl());
+        for (Function<TMemoryBuffer, TProtocol> protocol : Arrays.<Function<TMemoryBuffer, TProtocol>>asList(TBinaryProtocol::new, TCompactProtocol::new)) {
+            TMemoryBuffer request = new TMemoryBuffer(256);
+            TMemoryBuffer response = new TMemoryBuffer(256);
+            UserService.Client client = new UserService.Client(protocol.apply(response), protocol.apply(request));
+
+            client.send_findByUsercodes(USERCODES);
+            processor.process(protocol.apply(request), protocol.apply(response));
+            Map<String, User> found = client.recv_findByUsercodes();
+            assertEquals(new HashSet<>(Arrays.asList("1001", "1003")), found.keySet());
+            assertEquals("1001", found.get("1001").getUsercode());
+
+            client.send_existAll(USERCODES);
+            processor.process(protocol.apply(request), protocol.apply(response));
+            BitSet existing = UserServiceImpl.existing(client.recv_existAll());
+            assertEquals(BitSet.valueOf(new byte[]{5}), existing);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package me.tony.practice.common.thrift;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Binary snapshot of a {@link UserStore}, laid out the way the store keeps its columns so that
+ * loading is bulk copies rather than decoding one {@link User} at a time.
+ * <pre>
+ * header     magic, version, name count, row count, chunk count, names length   6 ints
+ * names      per name: utf-8 length, -1 for null, then the bytes
+ * directory  per chunk: file offset (long), first row, rows, pool offset, pool length
+ * chunk      name ids[rows], ages[rows], usercode ends[rows], genders[rows], usercode bytes
+ * </pre>
+ * Big endian throughout, as {@link DataOutputStream} writes it. Usercode ends are relative to
+ * the chunk's own bytes. Chunks are independent of each other, so {@link #load} maps and
+ * decodes them on several threads, each straight into its own slice of the store's columns;
+ * only the hash index and posting lists are built on one thread afterwards.
+ */
+final class UserSnapshot {
+
+    static final int MAGIC = 0x55534e50;
+    static final int VERSION = 1;
+    static final int DEFAULT_CHUNK_ROWS = 1 << 16;
+    private static final int HEADER = 24;
+    private static final int DIRECTORY_ENTRY = 24;
+    // name id, age, usercode end and gender
+    private static final int ROW_BYTES = 13;
+
+    private UserSnapshot() {
+    }
+
+    static void write(UserStore store, Path path) throws IOException {
+        write(store, path, DEFAULT_CHUNK_ROWS);
+    }
+
+    /**
+     * Writes the live users, holding the store's read lock until done.
+     */
+    static void write(UserStore store, Path path, final int chunkRows) throws IOException {
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            store.export((names, nameCount, nameColumn, genderColumn, ageColumn, codeOffsets, codePool, rows) -> {
+                int[] live = new int[rows];
+                int count = 0;
+                for (int row = 0; row < rows; row++) {
+                    if (!UserStore.deleted(genderColumn[row])) {
+                        live[count++] = row;
+                    }
+                }
+                byte[][] encoded = new byte[nameCount][];
+                int namesLength = 0;
+                for (int id = 0; id < nameCount; id++) {
+                    encoded[id] = names[id] == null ? null : names[id].getBytes(StandardCharsets.UTF_8);
+                    namesLength += 4 + (encoded[id] == null ? 0 : encoded[id].length);
+                }
+                int chunks = (count + chunkRows - 1) / chunkRows;
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(nameCount);
+                out.writeInt(count);
+                out.writeInt(chunks);
+                out.writeInt(namesLength);
+                for (byte[] name : encoded) {
+                    if (name == null) {
+                        out.writeInt(-1);
+                    } else {
+                        out.writeInt(name.length);
+                        out.write(name);
+                    }
+                }
+                long offset = HEADER + namesLength + (long) chunks * DIRECTORY_ENTRY;
+                int poolOffset = 0;
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    int first = chunk * chunkRows;
+                    int size = Math.min(chunkRows, count - first);
+                    int poolLength = 0;
+                    for (int i = first; i < first + size; i++) {
+                        poolLength += codeOffsets[live[i] + 1] - codeOffsets[live[i]];
+                    }
+                    out.writeLong(offset);
+                    out.writeInt(first);
+                    out.writeInt(size);
+                    out.writeInt(poolOffset);
+                    out.writeInt(poolLength);
+                    offset += (long) size * ROW_BYTES + poolLength;
+                    poolOffset += poolLength;
+                }
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    int first = chunk * chunkRows;
+                    int end = Math.min(first + chunkRows, count);
+                    for (int i = first; i < end; i++) {
+                        out.writeInt(nameColumn[live[i]]);
+                    }
+                    for (int i = first; i < end; i++) {
+                        out.writeInt(ageColumn[live[i]]);
+                    }
+                    int codeEnd = 0;
+                    for (int i = first; i < end; i++) {
+                        codeEnd += codeOffsets[live[i] + 1] - codeOffsets[live[i]];
+                        out.writeInt(codeEnd);
+                    }
+                    for (int i = first; i < end; i++) {
+                        out.writeByte(genderColumn[live[i]]);
+                    }
+                    for (int i = first; i < end; i++) {
+                        int from = codeOffsets[live[i]];
+                        out.write(codePool, from, codeOffsets[live[i] + 1] - from);
+                    }
+                }
+            });
+        }
+    }
+
+    static UserStore load(Path path) throws IOException {
+        return load(path, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads chunks decoded at once
+     */
+    static UserStore load(Path path, int threads) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER) {
+                throw new IOException(path + " is not a user snapshot");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a user snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported user snapshot version " + version);
+            }
+            int nameCount = header.getInt();
+            int rows = header.getInt();
+            int chunks = header.getInt();
+            int namesLength = header.getInt();
+
+            if (nameCount < 0 || rows < 0 || chunks < 0 || namesLength < 4L * nameCount) {
+                throw corrupt(path, "bad header");
+            }
+            long metaLength = namesLength + (long) chunks * DIRECTORY_ENTRY;
+            if (HEADER + metaLength > fileSize) {
+                throw corrupt(path, "truncated");
+            }
+            ByteBuffer meta = channel.map(FileChannel.MapMode.READ_ONLY, HEADER, metaLength);
+            // spare room, since the store grows its arrays by doubling
+            String[] names = new String[Math.max(16, nameCount)];
+            for (int id = 0; id < nameCount; id++) {
+                if (namesLength - meta.position() < 4) {
+                    throw corrupt(path, "name " + id + " past the names");
+                }
+                int length = meta.getInt();
+                if (length < -1 || length > namesLength - meta.position()) {
+                    throw corrupt(path, "name " + id + " past the names");
+                }
+                if (length >= 0) {
+                    byte[] bytes = new byte[length];
+                    meta.get(bytes);
+                    names[id] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            if (meta.position() != namesLength) {
+                throw corrupt(path, "names do not fill their section");
+            }
+            final List<Chunk> directory = new ArrayList<>(chunks);
+            int nextRow = 0;
+            int poolLength = 0;
+            // chunks follow the directory back to back, up to the end of the file
+            long nextOffset = HEADER + metaLength;
+            for (int i = 0; i < chunks; i++) {
+                Chunk chunk = new Chunk(meta.getLong(), meta.getInt(), meta.getInt(), meta.getInt(), meta.getInt());
+                if (chunk.offset != nextOffset || chunk.first != nextRow || chunk.poolOffset != poolLength
+                        || chunk.rows < 0 || chunk.poolLength < 0) {
+                    throw corrupt(path, "chunk " + i + " out of sequence");
+                }
+                if (chunk.offset + chunk.length() > fileSize) {
+                    throw corrupt(path, "truncated");
+                }
+                nextRow += chunk.rows;
+                poolLength += chunk.poolLength;
+                nextOffset += chunk.length();
+                directory.add(chunk);
+            }
+            if (nextRow != rows) {
+                throw corrupt(path, nextRow + " rows in chunks, " + rows + " in header");
+            }
+            if (nextOffset != fileSize) {
+                throw corrupt(path, (fileSize - nextOffset) + " bytes past the last chunk");
+            }
+
+            int capacity = Math.max(16, rows);
+            final Columns columns = new Columns(nameCount, new int[capacity], new byte[capacity], new int[capacity],
+                    new int[capacity], new int[capacity + 1], new byte[Math.max(128, poolLength)]);
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, chunks)));
+            try {
+                List<Future<?>> decoded = new ArrayList<>(chunks);
+                for (final Chunk chunk : directory) {
+                    final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.offset, chunk.length());
+                    decoded.add(executor.submit(() -> {
+                        columns.decode(chunk, buffer);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : decoded) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted loading " + path, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw new IOException("corrupt user snapshot " + path + ": " + e.getCause().getMessage(), e.getCause());
+                }
+                throw new IOException("failed loading " + path, e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+            return new UserStore(names, nameCount, columns.nameColumn, columns.genderColumn, columns.ageColumn,
+                    columns.codeHashes, columns.codeOffsets, columns.codePool, rows);
+        }
+    }
+
+    private static IOException corrupt(Path path, String reason) {
+        return new IOException("corrupt user snapshot " + path + ": " + reason);
+    }
+
+    private static final class Chunk {
+        final long offset;
+        final int first;
+        final int rows;
+        final int poolOffset;
+        final int poolLength;
+
+        Chunk(long offset, int first, int rows, int poolOffset, int poolLength) {
+            this.offset = offset;
+            this.first = first;
+            this.rows = rows;
+            this.poolOffset = poolOffset;
+            this.poolLength = poolLength;
+        }
+
+        long length() {
+            return (long) rows * ROW_BYTES + poolLength;
+        }
+    }
+
+    /**
+     * The store's arrays while they are being filled; each chunk writes only its own rows.
+     */
+    private static final class Columns {
+        final int nameCount;
+        final int[] nameColumn;
+        final byte[] genderColumn;
+        final int[] ageColumn;
+        final int[] codeHashes;
+        final int[] codeOffsets;
+        final byte[] codePool;
+
+        Columns(int nameCount, int[] nameColumn, byte[] genderColumn, int[] ageColumn, int[] codeHashes,
+                int[] codeOffsets, byte[] codePool) {
+            this.nameCount = nameCount;
+            this.nameColumn = nameColumn;
+            this.genderColumn = genderColumn;
+            this.ageColumn = ageColumn;
+            this.codeHashes = codeHashes;
+            this.codeOffsets = codeOffsets;
+            this.codePool = codePool;
+        }
+
+        void decode(Chunk chunk, ByteBuffer buffer) throws IOException {
+            int first = chunk.first;
+            int end = first + chunk.rows;
+            IntBuffer ints = buffer.asIntBuffer();
+            ints.get(nameColumn, first, chunk.rows);
+            ints.get(ageColumn, first, chunk.rows);
+            ints.get(codeOffsets, first + 1, chunk.rows);
+            buffer.position(chunk.rows * 12);
+            buffer.get(genderColumn, first, chunk.rows);
+            buffer.get(codePool, chunk.poolOffset, chunk.poolLength);
+            int previous = 0;
+            for (int row = first; row < end; row++) {
+                int nameId = nameColumn[row];
+                int codeEnd = codeOffsets[row + 1];
+                if (nameId < 0 || nameId >= nameCount || codeEnd < previous || codeEnd > chunk.poolLength
+                        || UserStore.deleted(genderColumn[row])) {
+                    throw new IOException("bad row " + row);
+                }
+                codeOffsets[row + 1] = chunk.poolOffset + codeEnd;
+                codeHashes[row] = UserStore.spread(hashCode(codePool, chunk.poolOffset + previous, chunk.poolOffset + codeEnd));
+                previous = codeEnd;
+            }
+            if (previous != chunk.poolLength) {
+                throw new IOException("usercodes of chunk at row " + first + " do not fill its pool");
+            }
+        }
+
+        /**
+         * {@link String#hashCode()} of the utf-8 bytes, without building the string when they are ascii.
+         */
+        private static int hashCode(byte[] bytes, int from, int to) {
+            int h = 0;
+            for (int i = from; i < to; i++) {
+                byte b = bytes[i];
+                if (b < 0) {
+                    return new String(bytes, from, to - from, StandardCharsets.UTF_8).hashCode();
+                }
+                h = 31 * h + b;
+            }
+            return h;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package me.tony.practice.common.thrift;
+
+import me.tony.practice.common.Base;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link UserSnapshot} written from a {@link UserStore} and loaded back, whole and damaged.
+ */
+public class UserSnapshotTest extends Base {
+
+    private static final String[] NAMES = {"Jim", "jim", "Lucy", "汤姆", "Zoë", "", null};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A store with removed rows, null names and genders and non-ascii usercodes, plus the
+     * users it should hold.
+     */
+    private static UserStore store(int users, Map<String, User> reference) {
+        Random random = new Random(users);
+        UserStore store = new UserStore(1);
+        for (int i = 0; i < users; i++) {
+            String usercode = i % 3 == 0 ? "用户-" + i : Integer.toString(1000 + i);
+            Gender gender = i % 5 == 0 ? null : Gender.findByValue(i & 1);
+            User user = new User(NAMES[random.nextInt(NAMES.length)], gender, usercode, random.nextInt(100));
+            store.add(user);
+            reference.put(usercode, user);
+        }
+        for (int i = 0; i < users; i += 4) {
+            String usercode = i % 3 == 0 ? "用户-" + i : Integer.toString(1000 + i);
+            store.remove(usercode);
+            reference.remove(usercode);
+        }
+        return store;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        Map<String, User> reference = new HashMap<>();
+        UserStore store = store(1000, reference);
+        for (int chunkRows : new int[]{1, 7, UserSnapshot.DEFAULT_CHUNK_ROWS}) {
+            Path path = folder.newFile().toPath();
+            UserSnapshot.write(store, path, chunkRows);
+            for (int threads : new int[]{1, 4}) {
+                UserStore loaded = UserSnapshot.load(path, threads);
+                assertSameContent(loaded, reference);
+                // and it keeps working as a store
+                loaded.add(new User("Jim", Gender.MALE, "new", 1));
+                assertTrue(loaded.remove("1001"));
+                Map<String, User> changed = new HashMap<>(reference);
+                changed.put("new", new User("Jim", Gender.MALE, "new", 1));
+                changed.remove("1001");
+                assertSameContent(loaded, changed);
+            }
+        }
+    }
+
+    @Test
+    public void emptyStoreRoundTrip() throws IOException {
+        Path path = folder.newFile().toPath();
+        UserSnapshot.write(new UserStore(), path);
+        UserStore loaded = UserSnapshot.load(path);
+        assertEquals(0, loaded.size());
+        loaded.add(new User("Jim", Gender.MALE, "1001", 20));
+        assertEquals(new User("Jim", Gender.MALE, "1001", 20), loaded.get("1001"));
+    }
+
+    @Test
+    public void everyTruncationIsRejected() throws IOException {
+        byte[] bytes = snapshot(40, 8);
+        for (int length = 0; length < bytes.length; length++) {
+            assertRejected("first " + length + " bytes", Arrays.copyOf(bytes, length));
+        }
+    }
+
+    @Test
+    public void trailingBytesAreRejected() throws IOException {
+        byte[] bytes = snapshot(40, 8);
+        assertRejected("one byte more", Arrays.copyOf(bytes, bytes.length + 1));
+    }
+
+    @Test
+    public void corruptLengthsAreRejected() throws IOException {
+        byte[] bytes = snapshot(40, 8);
+        // header ints: magic, version, name count, rows, chunks, names length
+        for (int field = 2; field < 6; field++) {
+            for (int value : new int[]{-1, Integer.MAX_VALUE}) {
+                byte[] corrupt = bytes.clone();
+                ByteBuffer.wrap(corrupt).putInt(field * 4, value);
+                assertRejected("header int " + field + " = " + value, corrupt);
+            }
+        }
+        // the first name's length, right after the header
+        for (int value : new int[]{-2, Integer.MAX_VALUE, 1 << 20}) {
+            byte[] corrupt = bytes.clone();
+            ByteBuffer.wrap(corrupt).putInt(24, value);
+            assertRejected("name length " + value, corrupt);
+        }
+    }
+
+    private byte[] snapshot(int users, int chunkRows) throws IOException {
+        Path path = folder.newFile().toPath();
+        UserSnapshot.write(store(users, new HashMap<>()), path, chunkRows);
+        byte[] bytes = Files.readAllBytes(path);
+        // the intact file loads, so whatever fails below fails for the damage
+        UserSnapshot.load(path, 2);
+        return bytes;
+    }
+
+    private void assertRejected(String damage, byte[] bytes) throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, bytes);
+        try {
+            UserSnapshot.load(path, 2);
+            fail(damage + " loaded");
+        } catch (IOException e) {
+            // expected, and no other exception type
+        }
+    }
+
+    private static void assertSameContent(UserStore store, Map<String, User> reference) {
+        assertEquals(reference.size(), store.size());
+        List<String> usercodes = new ArrayList<>(reference.keySet());
+        usercodes.add("never-added");
+        assertEquals(reference, store.getAll(usercodes));
+        for (String usercode : reference.keySet()) {
+            assertEquals(usercode, reference.get(usercode), store.get(usercode));
+        }
+        BitSet present = store.containsAll(usercodes);
+        assertEquals(reference.size(), present.cardinality());
+        assertFalse(present.get(usercodes.size() - 1));
+        Map<String, Set<User>> byName = new HashMap<>();
+        for (User user : reference.values()) {
+            byName.computeIfAbsent(user.getName(), k -> new HashSet<>()).add(user);
+        }
+        for (String name : NAMES) {
+            assertEquals(name, byName.getOrDefault(name, Collections.emptySet()), new HashSet<>(store.findByName(name)));
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package me.tony.practice.common.thrift;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Columnar in-memory user table: one primitive column per {@link User} field, names
+ * dictionary encoded, usercodes packed into one utf-8 byte pool and indexed by an
+ * open addressing hash table of row numbers.
+ * {@link User} objects only exist on the way out, at the rpc boundary.
+ * Rows are append only; removing a user leaves a tombstone that a later add of the same
+ * usercode reuses.
+ * Every name keeps a posting list of its live rows, so name lookups cost the size of the
+ * answer rather than the table. Every lookup returns {@link User} objects of its own, which
+ * the caller is free to change.
+ */
+class UserStore {
+
+    private static final byte DELETED = -1;
+    private static final byte NO_GENDER = -2;
+    private static final int EMPTY = 0;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // name dictionary
+    private final HashMap<String, Integer> nameIds = new HashMap<>();
+    private String[] names = new String[16];
+    private int nameCount;
+    private int[][] postings = new int[16][];
+    private int[] postingSizes = new int[16];
+    private final TreeMap<String, Integer> sortedNames = new TreeMap<>();
+    private final HashMap<String, List<Integer>> foldedNames = new HashMap<>();
+
+    // one entry per row
+    private int[] nameColumn;
+    private byte[] genderColumn;
+    private int[] ageColumn;
+    private int[] codeHashes;
+    private int[] codeOffsets;
+    private byte[] codePool;
+    private int rows;
+    private int live;
+
+    // row + 1 per slot, EMPTY otherwise
+    private int[] index;
+    private int used;
+
+    UserStore() {
+        this(16);
+    }
+
+    UserStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        nameColumn = new int[capacity];
+        genderColumn = new byte[capacity];
+        ageColumn = new int[capacity];
+        codeHashes = new int[capacity];
+        codeOffsets = new int[capacity + 1];
+        codePool = new byte[capacity * 8];
+        index = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+    }
+
+    /**
+     * Bulk load of live rows, see {@link UserSnapshot#load}. Takes the arrays over as they are;
+     * the usercodes must be distinct and every name id below nameCount.
+     */
+    UserStore(String[] names, int nameCount, int[] nameColumn, byte[] genderColumn, int[] ageColumn,
+              int[] codeHashes, int[] codeOffsets, byte[] codePool, int rows) {
+        this.names = names;
+        this.nameCount = nameCount;
+        postings = new int[names.length][];
+        postingSizes = new int[names.length];
+        for (int id = 0; id < nameCount; id++) {
+            String name = names[id];
+            nameIds.put(name, id);
+            if (name != null) {
+                sortedNames.put(name, id);
+                foldedNames.computeIfAbsent(fold(name), k -> new ArrayList<>(1)).add(id);
+            }
+        }
+        this.nameColumn = nameColumn;
+        this.genderColumn = genderColumn;
+        this.ageColumn = ageColumn;
+        this.codeHashes = codeHashes;
+        this.codeOffsets = codeOffsets;
+        this.codePool = codePool;
+        this.rows = rows;
+        this.live = rows;
+        // posting lists sized exactly in a counting pass, then filled in row order
+        for (int row = 0; row < rows; row++) {
+            postingSizes[nameColumn[row]]++;
+        }
+        for (int id = 0; id < nameCount; id++) {
+            postings[id] = new int[Math.max(4, postingSizes[id])];
+            postingSizes[id] = 0;
+        }
+        index = new int[Integer.highestOneBit(Math.max(rows, 16) * 2 - 1) * 2];
+        for (int row = 0; row < rows; row++) {
+            int nameId = nameColumn[row];
+            postings[nameId][postingSizes[nameId]++] = row;
+            insert(row, codeHashes[row]);
+        }
+    }
+
+    /**
+     * Adds the user, or overwrites the row already holding its usercode.
+     */
+    void add(User user) {
+        if (null == user.getUsercode()) {
+            throw new IllegalArgumentException("usercode is null");
+        }
+        lock.writeLock().lock();
+        try {
+            String usercode = user.getUsercode();
+            int hash = hash(usercode);
+            int row = find(usercode, hash);
+            if (row < 0) {
+                row = append(usercode, hash);
+            } else if (genderColumn[row] == DELETED) {
+                live++;
+            } else {
+                unpost(nameColumn[row], row);
+            }
+            int nameId = internName(user.getName());
+            nameColumn[row] = nameId;
+            post(nameId, row);
+            genderColumn[row] = user.getGender() == null ? NO_GENDER : (byte) user.getGender().getValue();
+            ageColumn[row] = user.getAge();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean remove(String usercode) {
+        lock.writeLock().lock();
+        try {
+            int row = find(usercode, hash(usercode));
+            if (row < 0 || genderColumn[row] == DELETED) {
+                return false;
+            }
+            genderColumn[row] = DELETED;
+            unpost(nameColumn[row], row);
+            live--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    User get(String usercode) {
+        lock.readLock().lock();
+        try {
+            int row = find(usercode, hash(usercode));
+            return row < 0 || genderColumn[row] == DELETED ? null : materialize(row, usercode);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean contains(String usercode) {
+        lock.readLock().lock();
+        try {
+            int row = find(usercode, hash(usercode));
+            return row >= 0 && genderColumn[row] != DELETED;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One read lock for the whole batch. Usercodes without a live user are left out.
+     */
+    Map<String, User> getAll(Collection<String> usercodes) {
+        Map<String, User> result = new HashMap<>(usercodes.size() * 2);
+        lock.readLock().lock();
+        try {
+            for (String usercode : usercodes) {
+                int row = find(usercode, hash(usercode));
+                if (row >= 0 && genderColumn[row] != DELETED) {
+                    result.put(usercode, materialize(row, usercode));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return bit i set if the i-th usercode has a live user
+     */
+    BitSet containsAll(List<String> usercodes) {
+        BitSet result = new BitSet(usercodes.size());
+        lock.readLock().lock();
+        try {
+            for (int i = 0, size = usercodes.size(); i < size; i++) {
+                String usercode = usercodes.get(i);
+                int row = find(usercode, hash(usercode));
+                if (row >= 0 && genderColumn[row] != DELETED) {
+                    result.set(i);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<User> findByName(String name) {
+        lock.readLock().lock();
+        try {
+            Integer nameId = nameIds.get(name);
+            if (nameId == null) {
+                return new ArrayList<>();
+            }
+            List<User> result = new ArrayList<>(postingSizes[nameId]);
+            collect(nameId, result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return users whose name starts with the prefix, grouped by name in name order
+     */
+    List<User> findByNamePrefix(String prefix) {
+        lock.readLock().lock();
+        try {
+            List<User> result = new ArrayList<>();
+            for (int nameId : sortedNames.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+                collect(nameId, result);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<User> findByNameIgnoreCase(String name) {
+        lock.readLock().lock();
+        try {
+            List<User> result = new ArrayList<>();
+            for (int nameId : foldedNames.getOrDefault(fold(name), Collections.emptyList())) {
+                collect(nameId, result);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(int nameId, List<User> result) {
+        int[] posting = postings[nameId];
+        for (int i = 0, size = postingSizes[nameId]; i < size; i++) {
+            result.add(materialize(posting[i], null));
+        }
+    }
+
+    private void post(int nameId, int row) {
+        int[] posting = postings[nameId];
+        int size = postingSizes[nameId];
+        if (posting == null) {
+            posting = postings[nameId] = new int[4];
+        } else if (size == posting.length) {
+            posting = postings[nameId] = Arrays.copyOf(posting, size * 2);
+        }
+        posting[size] = row;
+        postingSizes[nameId] = size + 1;
+    }
+
+    private void unpost(int nameId, int row) {
+        int[] posting = postings[nameId];
+        int last = postingSizes[nameId] - 1;
+        for (int i = last; i >= 0; i--) {
+            if (posting[i] == row) {
+                posting[i] = posting[last];
+                postingSizes[nameId] = last;
+                break;
+            }
+        }
+    }
+
+    private static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    interface Exporter {
+        void export(String[] names, int nameCount, int[] nameColumn, byte[] genderColumn, int[] ageColumn,
+                    int[] codeOffsets, byte[] codePool, int rows) throws IOException;
+    }
+
+    /**
+     * Hands the raw columns, tombstones included, to the exporter under the read lock.
+     */
+    void export(Exporter exporter) throws IOException {
+        lock.readLock().lock();
+        try {
+            exporter.export(names, nameCount, nameColumn, genderColumn, ageColumn, codeOffsets, codePool, rows);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static boolean deleted(byte gender) {
+        return gender == DELETED;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param usercode the caller's copy of the usercode, or null to decode it from the pool
+     */
+    private User materialize(int row, String usercode) {
+        if (usercode == null) {
+            int from = codeOffsets[row];
+            usercode = new String(codePool, from, codeOffsets[row + 1] - from, StandardCharsets.UTF_8);
+        }
+        byte gender = genderColumn[row];
+        return new User(names[nameColumn[row]], gender == NO_GENDER ? null : Gender.findByValue(gender), usercode, ageColumn[row]);
+    }
+
+    private int internName(String name) {
+        Integer id = nameIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+            postings = Arrays.copyOf(postings, nameCount * 2);
+            postingSizes = Arrays.copyOf(postingSizes, nameCount * 2);
+        }
+        names[nameCount] = name;
+        nameIds.put(name, nameCount);
+        if (name != null) {
+            sortedNames.put(name, nameCount);
+            foldedNames.computeIfAbsent(fold(name), k -> new ArrayList<>(1)).add(nameCount);
+        }
+        return nameCount++;
+    }
+
+    private int append(String usercode, int hash) {
+        if (rows == nameColumn.length) {
+            int capacity = rows * 2;
+            nameColumn = Arrays.copyOf(nameColumn, capacity);
+            genderColumn = Arrays.copyOf(genderColumn, capacity);
+            ageColumn = Arrays.copyOf(ageColumn, capacity);
+            codeHashes = Arrays.copyOf(codeHashes, capacity);
+            codeOffsets = Arrays.copyOf(codeOffsets, capacity + 1);
+        }
+        byte[] bytes = usercode.getBytes(StandardCharsets.UTF_8);
+        int from = codeOffsets[rows];
+        if (from + bytes.length > codePool.length) {
+            codePool = Arrays.copyOf(codePool, Math.max(codePool.length * 2, from + bytes.length));
+        }
+        System.arraycopy(bytes, 0, codePool, from, bytes.length);
+        int row = rows++;
+        codeOffsets[rows] = from + bytes.length;
+        codeHashes[row] = hash;
+        live++;
+        if ((used + 1) * 2 > index.length) {
+            rehash(index.length * 2);
+        }
+        insert(row, hash);
+        return row;
+    }
+
+    private void rehash(int capacity) {
+        index = new int[capacity];
+        used = 0;
+        for (int row = 0; row < rows; row++) {
+            insert(row, codeHashes[row]);
+        }
+    }
+
+    private void insert(int row, int hash) {
+        int mask = index.length - 1;
+        int slot = hash & mask;
+        while (index[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = row + 1;
+        used++;
+    }
+
+    /**
+     * @return the row holding the usercode, deleted or not, or -1
+     */
+    private int find(String usercode, int hash) {
+        int mask = index.length - 1;
+        int slot = hash & mask;
+        int entry;
+        while ((entry = index[slot]) != EMPTY) {
+            int row = entry - 1;
+            if (codeHashes[row] == hash && codeEquals(row, usercode)) {
+                return row;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean codeEquals(int row, String usercode) {
+        int from = codeOffsets[row];
+        int length = codeOffsets[row + 1] - from;
+        if (length == usercode.length()) {
+            // ascii fast path, no encoding needed
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                char c = usercode.charAt(i);
+                if (c >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+                if (codePool[from + i] != c) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        }
+        byte[] bytes = usercode.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (codePool[from + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(String usercode) {
+        return spread(usercode.hashCode());
+    }
+
+    /**
+     * @param h a usercode's {@link String#hashCode()}
+     */
+    static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,140 @@
+package me.tony.practice.common.thrift;
+
+import me.tony.practice.common.Base;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link UserStore} against a plain {@link HashMap} of the same users.
+ */
+public class UserStoreTest extends Base {
+
+    private static final String[] NAMES = {"Jim", "jim", "Lucy", "Lily", "Tom", "汤姆", "Zoë", null};
+
+    private static String usercode(int i) {
+        switch (i % 4) {
+            case 0:
+                return Integer.toString(1000 + i);
+            case 1:
+                return "用户-" + i;
+            case 2:
+                return "ü" + i + "é";
+            default:
+                // a supplementary character, two chars and four utf-8 bytes
+                return "😀" + i;
+        }
+    }
+
+    private static User user(Random random, String usercode) {
+        Gender gender = random.nextInt(5) == 0 ? null : Gender.findByValue(random.nextInt(2));
+        return new User(NAMES[random.nextInt(NAMES.length)], gender, usercode, random.nextInt(100));
+    }
+
+    /**
+     * Random adds, overwrites and removes, starting from the smallest store so the columns
+     * and the index grow many times over.
+     */
+    @Test
+    public void matchesHashMap() {
+        Random random = new Random(42);
+        UserStore store = new UserStore(1);
+        Map<String, User> reference = new HashMap<>();
+        int codes = 5000;
+        for (int op = 0; op < 50000; op++) {
+            String usercode = usercode(random.nextInt(codes));
+            if (random.nextInt(4) == 0) {
+                assertEquals(usercode, reference.remove(usercode) != null, store.remove(usercode));
+            } else {
+                User user = user(random, usercode);
+                store.add(user);
+                reference.put(usercode, user);
+            }
+            if (op % 5000 == 0) {
+                assertSameContent(store, reference, codes);
+            }
+        }
+        assertSameContent(store, reference, codes);
+    }
+
+    @Test
+    public void removedUsercodeReusesItsRow() {
+        UserStore store = new UserStore();
+        store.add(new User("Jim", Gender.MALE, "1001", 20));
+        store.add(new User("Lucy", Gender.FEMALE, "1002", 30));
+        assertTrue(store.remove("1001"));
+        assertFalse(store.remove("1001"));
+        assertNull(store.get("1001"));
+        assertEquals(Collections.emptyList(), store.findByName("Jim"));
+
+        store.add(new User("Lily", Gender.FEMALE, "1001", 21));
+        assertEquals(new User("Lily", Gender.FEMALE, "1001", 21), store.get("1001"));
+        assertEquals(2, store.size());
+        assertEquals(2, rows(store));
+        assertEquals(1, store.findByName("Lily").size());
+    }
+
+    @Test
+    public void overwriteMovesTheRowBetweenNames() {
+        UserStore store = new UserStore();
+        store.add(new User("Jim", Gender.MALE, "用户-1", 20));
+        store.add(new User("Tom", Gender.MALE, "用户-1", 22));
+        assertEquals(1, store.size());
+        assertEquals(Collections.emptyList(), store.findByName("Jim"));
+        assertEquals(Collections.singletonList(new User("Tom", Gender.MALE, "用户-1", 22)), store.findByName("Tom"));
+        assertEquals(Collections.singletonList(new User("Tom", Gender.MALE, "用户-1", 22)), store.findByNameIgnoreCase("TOM"));
+    }
+
+    @Test
+    public void answersAreTheCallersToChange() {
+        UserStore store = new UserStore();
+        store.add(new User("Jim", Gender.MALE, "1001", 20));
+        store.findByName("Jim").get(0).setAge(99);
+        store.get("1001").setName("Tom");
+        assertEquals(new User("Jim", Gender.MALE, "1001", 20), store.findByName("Jim").get(0));
+    }
+
+    private static int rows(UserStore store) {
+        final int[] rows = new int[1];
+        try {
+            store.export((names, nameCount, nameColumn, genderColumn, ageColumn, codeOffsets, codePool, count) -> rows[0] = count);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return rows[0];
+    }
+
+    private static void assertSameContent(UserStore store, Map<String, User> reference, int codes) {
+        assertEquals(reference.size(), store.size());
+        List<String> all = new ArrayList<>(codes + 1);
+        for (int i = 0; i < codes; i++) {
+            String usercode = usercode(i);
+            all.add(usercode);
+            assertEquals(usercode, reference.get(usercode), store.get(usercode));
+            assertEquals(usercode, reference.containsKey(usercode), store.contains(usercode));
+        }
+        all.add("never-added");
+        assertEquals(reference, store.getAll(all));
+        BitSet present = store.containsAll(all);
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(all.get(i), reference.containsKey(all.get(i)), present.get(i));
+        }
+        Map<String, List<User>> byName = new HashMap<>();
+        for (User user : reference.values()) {
+            byName.computeIfAbsent(user.getName(), k -> new ArrayList<>()).add(user);
+        }
+        for (String name : NAMES) {
+            List<User> expected = byName.getOrDefault(name, new ArrayList<>());
+            assertEquals(name, sorted(expected), sorted(store.findByName(name)));
+        }
+    }
+
+    private static List<User> sorted(List<User> users) {
+        List<User> copy = new ArrayList<>(users);
+        copy.sort(Comparator.comparing(User::getUsercode));
+        return copy;
+    }
+}
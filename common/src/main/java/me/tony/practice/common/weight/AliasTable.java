@@ -0,0 +1,200 @@
+package me.tony.practice.common.weight;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Walker/Vose alias table over one tag's weighted targets.
+ * Selection costs one multiply, one compare and two array reads, and allocates nothing.
+ * The normalized cumulative weights are kept too, for sticky selection.
+ * Every slot counts its hits in a striped {@link LongAdder}, for drift monitoring.
+ * Slots may carry a {@link SlotGuard}; a slot it turns down is redrawn, which shifts its
+ * traffic to the other slots in proportion to their weights.
+ */
+final class AliasTable {
+
+    static final int NONE = -1;
+    static final int MAX_DRAWS = 8;
+
+    final double[] probability;
+    final int[] alias;
+    final double[] cumulative;
+    final List<String>[] targets;
+    final LongAdder[] hits;
+    // null when no slot is guarded, which keeps the common path to one null check
+    final SlotGuard[] guards;
+
+    AliasTable(double[] probability, int[] alias, double[] cumulative, List<String>[] targets) {
+        this(probability, alias, cumulative, targets, null);
+    }
+
+    AliasTable(double[] probability, int[] alias, double[] cumulative, List<String>[] targets, SlotGuard[] guards) {
+        this.probability = probability;
+        this.alias = alias;
+        this.cumulative = cumulative;
+        this.targets = targets;
+        this.guards = guards;
+        this.hits = new LongAdder[targets.length];
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return null if there is no positive weight to select from
+     */
+    @SuppressWarnings("unchecked")
+    static AliasTable of(List<Pair<Double, List<String>>> weightedTargets) {
+        int size = weightedTargets.size();
+        double total = 0;
+        for (Pair<Double, List<String>> pair : weightedTargets) {
+            total += pair.getLeft();
+        }
+        if (size == 0 || total <= 0) {
+            return null;
+        }
+        double[] scaled = new double[size];
+        double[] cumulative = new double[size];
+        List<String>[] targets = (List<String>[]) new List<?>[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            Pair<Double, List<String>> pair = weightedTargets.get(i);
+            scaled[i] = pair.getLeft() * size / total;
+            sum += pair.getLeft();
+            cumulative[i] = sum / total;
+            targets[i] = Collections.unmodifiableList(pair.getRight());
+        }
+        cumulative[size - 1] = 1;
+        double[] probability = new double[size];
+        int[] alias = new int[size];
+        Deque<Integer> small = new ArrayDeque<>();
+        Deque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < size; i++) {
+            if (scaled[i] < 1) {
+                small.push(i);
+            } else {
+                large.push(i);
+            }
+        }
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            if (scaled[more] < 1) {
+                small.push(more);
+            } else {
+                large.push(more);
+            }
+        }
+        // whatever is left over is 1 up to rounding error
+        while (!large.isEmpty()) {
+            int i = large.pop();
+            probability[i] = 1;
+            alias[i] = i;
+        }
+        while (!small.isEmpty()) {
+            int i = small.pop();
+            probability[i] = 1;
+            alias[i] = i;
+        }
+        return new AliasTable(probability, alias, cumulative, targets);
+    }
+
+    int size() {
+        return probability.length;
+    }
+
+    AliasTable guarded(SlotGuard[] guards) {
+        return new AliasTable(probability, alias, cumulative, targets, guards);
+    }
+
+    /**
+     * @return index into {@link #targets}, or {@link #NONE} if the guards turned down every slot
+     */
+    int sample(RandomSource random) {
+        if (guards == null) {
+            return hit(column(random.nextDouble()));
+        }
+        for (int draw = 0; draw < MAX_DRAWS; draw++) {
+            int slot = column(random.nextDouble());
+            if (admit(slot, random)) {
+                return hit(slot);
+            }
+        }
+        // mostly closed table, walk the slots from a random start rather than give up
+        int start = (int) (random.nextDouble() * guards.length);
+        for (int i = 0; i < guards.length; i++) {
+            int next = (start + i) % guards.length;
+            if (admit(next, random)) {
+                return hit(next);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @param u uniform in [0, 1)
+     */
+    private int column(double u) {
+        double scaled = u * probability.length;
+        int column = (int) scaled;
+        return scaled - column < probability[column] ? column : alias[column];
+    }
+
+    private boolean admit(int slot, RandomSource random) {
+        SlotGuard guard = guards[slot];
+        return guard == null || guard.admit(random);
+    }
+
+    /**
+     * Maps u onto the cumulative weights. Unlike {@link #sample(RandomSource)}, a small weight
+     * change only moves the keys near the boundaries it shifts, so sticky keys stay put.
+     * A key whose slot is turned down by its guard falls back to a random draw.
+     *
+     * @param u uniform in [0, 1)
+     * @return index into {@link #targets}, or {@link #NONE}
+     */
+    int locate(double u, RandomSource random) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > u) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        if (guards != null && !admit(low, random)) {
+            return sample(random);
+        }
+        return hit(low);
+    }
+
+    private int hit(int slot) {
+        hits[slot].increment();
+        return slot;
+    }
+
+    /**
+     * @return configured share of the slot, in [0, 1]
+     */
+    double share(int slot) {
+        return slot == 0 ? cumulative[0] : cumulative[slot] - cumulative[slot - 1];
+    }
+
+    List<String> select(RandomSource random) {
+        return targets(sample(random));
+    }
+
+    List<String> targets(int slot) {
+        return slot == NONE ? Collections.<String>emptyList() : targets[slot];
+    }
+}
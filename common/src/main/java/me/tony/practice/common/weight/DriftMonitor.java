@@ -0,0 +1,60 @@
+package me.tony.practice.common.weight;
+
+import me.tony.practice.common.Base;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically compares the realized split of every tag with its configured weights
+ * and logs the tags that drifted further than the tolerance.
+ * The last report stays readable through {@link #lastReport()}.
+ */
+public class DriftMonitor extends Base {
+
+    private final WeightedSelector selector;
+    private final double tolerance;
+    private final long minSamples;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "weight-drift-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile List<TagStats> lastReport = Collections.emptyList();
+
+    /**
+     * @param tolerance  largest accepted gap between realized and configured share
+     * @param minSamples tags with fewer selections are not judged yet
+     */
+    DriftMonitor(WeightedSelector selector, double tolerance, long minSamples) {
+        this.selector = selector;
+        this.tolerance = tolerance;
+        this.minSamples = minSamples;
+    }
+
+    void start(long period, TimeUnit unit) {
+        scheduler.scheduleAtFixedRate(this::report, period, period, unit);
+    }
+
+    void stop() {
+        scheduler.shutdown();
+    }
+
+    List<TagStats> report() {
+        List<TagStats> report = selector.stats();
+        for (TagStats stats : report) {
+            if (stats.total >= minSamples && stats.drift() > tolerance) {
+                logger.warn("traffic split drift on generation {}: {}", stats.generation, stats);
+            }
+        }
+        lastReport = report;
+        return report;
+    }
+
+    List<TagStats> lastReport() {
+        return lastReport;
+    }
+}
@@ -0,0 +1,40 @@
+package me.tony.practice.common.weight;
+
+/**
+ * 64 bit hash of caller keys such as a device id or didmd5, for sticky selection.
+ * FNV-1a over the chars, then the murmur3 finalizer to spread the bits.
+ * The hash only depends on the key, so every instance maps a key the same way.
+ */
+final class KeyHash {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private KeyHash() {
+    }
+
+    static long hash(CharSequence key) {
+        long h = FNV_OFFSET;
+        for (int i = 0, length = key.length(); i < length; i++) {
+            h ^= key.charAt(i);
+            h *= FNV_PRIME;
+        }
+        return mix(h);
+    }
+
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @return the top 53 bits of the hash as a double uniform in [0, 1)
+     */
+    static double unit(long hash) {
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+}
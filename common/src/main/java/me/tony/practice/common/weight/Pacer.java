@@ -0,0 +1,57 @@
+package me.tony.practice.common.weight;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free qps cap of one dsp, shared by every tag that sends it traffic.
+ * The whole rate is a single GCRA (a token bucket kept as its theoretical arrival time) in
+ * one atomic word, so every thread draws on the same budget whichever thread it is, and an
+ * admission is one CAS.
+ * Once the backlog passes half of the burst tolerance, requests are admitted with a
+ * probability falling linearly to zero, so traffic drains away smoothly before the cap,
+ * and fewer callers are left to race for the word.
+ */
+final class Pacer {
+
+    static final long TOLERANCE = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // starts in the distant past, so the first caller finds a full bucket
+    private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE);
+    private volatile long interval;
+    volatile double qps;
+
+    Pacer(double qps) {
+        update(qps);
+    }
+
+    Pacer update(double qps) {
+        this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / qps);
+        this.qps = qps;
+        return this;
+    }
+
+    boolean admit(long now, RandomSource random) {
+        long interval = this.interval;
+        if (interval == 0) {
+            // over a billion qps, nothing to pace
+            return true;
+        }
+        long soft = TOLERANCE / 2;
+        while (true) {
+            long tat = this.tat.get();
+            long base = Math.max(tat, now);
+            // admissions already promised ahead of now, zero on an empty bucket
+            long backlog = base - now;
+            if (backlog > TOLERANCE) {
+                return false;
+            }
+            if (backlog > soft && random.nextDouble() * (TOLERANCE - soft) < backlog - soft) {
+                return false;
+            }
+            if (this.tat.compareAndSet(tat, base + interval)) {
+                return true;
+            }
+        }
+    }
+}
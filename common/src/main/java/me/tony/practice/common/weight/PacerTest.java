@@ -0,0 +1,78 @@
+package me.tony.practice.common.weight;
+
+import me.tony.practice.common.Base;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.*;
+
+public class PacerTest extends Base {
+
+    private static final double QPS = 1000;
+
+    /**
+     * Whatever the number of callers, the admitted rate has to reach the cap without passing
+     * it by more than the burst tolerance.
+     */
+    @Test
+    public void oneThreadGetsTheWholeRate() throws InterruptedException {
+        assertRate(1);
+    }
+
+    @Test
+    public void threadsShareTheRate() throws InterruptedException {
+        assertRate(8);
+    }
+
+    private static void assertRate(int threads) throws InterruptedException {
+        final Pacer pacer = new Pacer(QPS);
+        final RandomSource random = RandomSource.threadLocal();
+        final LongAdder admitted = new LongAdder();
+        final long start = System.nanoTime();
+        final long end = start + TimeUnit.SECONDS.toNanos(1);
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread caller = new Thread(() -> {
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    if (pacer.admit(now, random)) {
+                        admitted.increment();
+                    }
+                }
+            });
+            caller.start();
+            callers.add(caller);
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double cap = QPS * seconds + QPS * Pacer.TOLERANCE / 1e9;
+        logger.info("{} threads: {} admitted in {}s", threads, admitted.sum(), seconds);
+        assertTrue(admitted.sum() + " admitted over " + cap, admitted.sum() <= cap + 1);
+        assertTrue(admitted.sum() + " admitted, far below " + QPS, admitted.sum() >= 0.9 * QPS);
+    }
+
+    @Test
+    public void updateTakesEffect() {
+        Pacer pacer = new Pacer(10);
+        RandomSource never = () -> 0.999;
+        long now = 0;
+        int admitted = 0;
+        // a second of calls every millisecond, on a clock of our own
+        for (int i = 0; i < 1000; i++, now += TimeUnit.MILLISECONDS.toNanos(1)) {
+            admitted += pacer.admit(now, never) ? 1 : 0;
+        }
+        assertTrue(admitted + " admitted at 10 qps", admitted >= 10 && admitted <= 11);
+        pacer.update(100);
+        admitted = 0;
+        for (int i = 0; i < 1000; i++, now += TimeUnit.MILLISECONDS.toNanos(1)) {
+            admitted += pacer.admit(now, never) ? 1 : 0;
+        }
+        assertTrue(admitted + " admitted at 100 qps", admitted >= 95 && admitted <= 110);
+    }
+}
@@ -0,0 +1,165 @@
+package me.tony.practice.common.weight;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.*;
+
+/**
+ * Second level of the traffic split: which members of a tag's non-exclusive bidding pool
+ * receive a request once the pool itself was picked.
+ * Every outcome is expanded into its own weighted slot of the tag's alias table, so the
+ * whole two level decision is still one O(1) lookup.
+ */
+final class PoolPolicy {
+
+    enum Mode {
+        /**
+         * the whole pool, as before, zero weights included
+         */
+        ALL,
+        /**
+         * always the k heaviest members
+         */
+        TOP_K,
+        /**
+         * k members drawn by weight without replacement, every possible k subset a slot of
+         * its own with its exact probability
+         */
+        SAMPLE_K
+    }
+
+    static final PoolPolicy ALL = new PoolPolicy(Mode.ALL, Integer.MAX_VALUE);
+
+    /**
+     * most subsets of up to k members {@link Mode#SAMPLE_K} enumerates for one pool; a pool
+     * with more is refused rather than approximated, as its table would be huge anyway
+     */
+    static final int MAX_SUBSETS = 1 << 14;
+
+    final Mode mode;
+    final int k;
+
+    private PoolPolicy(Mode mode, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.mode = mode;
+        this.k = k;
+    }
+
+    static PoolPolicy topK(int k) {
+        return new PoolPolicy(Mode.TOP_K, k);
+    }
+
+    static PoolPolicy sampleK(int k) {
+        return new PoolPolicy(Mode.SAMPLE_K, k);
+    }
+
+    /**
+     * @param poolWeight share of the tag's traffic that goes to the pool
+     * @param pool       the non-exclusive rules, their weights rank members inside the pool;
+     *                   a pool without any positive weight is treated as evenly weighted
+     * @throws IllegalArgumentException if {@link Mode#SAMPLE_K} would have to enumerate more
+     *                                  than {@link #MAX_SUBSETS} subsets of the pool
+     */
+    List<Pair<Double, List<String>>> expand(String tagId, double poolWeight, List<TrafficRule> pool) {
+        if (mode == Mode.ALL) {
+            return Collections.singletonList(Pair.of(poolWeight, dspKeys(pool)));
+        }
+        List<TrafficRule> members = pool;
+        if (pool.stream().anyMatch(tr -> tr.weight > 0)) {
+            members = new ArrayList<>();
+            for (TrafficRule tr : pool) {
+                if (tr.weight > 0) {
+                    members.add(tr);
+                }
+            }
+        }
+        if (members.size() <= k) {
+            return Collections.singletonList(Pair.of(poolWeight, dspKeys(members)));
+        }
+        if (mode == Mode.TOP_K) {
+            List<TrafficRule> ranked = new ArrayList<>(members);
+            ranked.sort((a, b) -> Double.compare(b.weight, a.weight));
+            return Collections.singletonList(Pair.of(poolWeight, dspKeys(ranked.subList(0, k))));
+        }
+        if (members.size() >= Long.SIZE || subsets(members.size()) > MAX_SUBSETS) {
+            throw new IllegalArgumentException("pool of tag " + tagId + " has " + members.size()
+                    + " members, too many to sample " + k + " of them exactly");
+        }
+        double[] weights = new double[members.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = members.get(i).weight > 0 ? members.get(i).weight : 1;
+        }
+        Map<Long, Double> subsets = exact(weights);
+        List<Pair<Double, List<String>>> ret = new ArrayList<>(subsets.size());
+        for (Map.Entry<Long, Double> entry : subsets.entrySet()) {
+            long mask = entry.getKey();
+            List<String> subset = new ArrayList<>(k);
+            for (int i = 0; i < weights.length; i++) {
+                if ((mask & 1L << i) != 0) {
+                    subset.add(members.get(i).dspKey);
+                }
+            }
+            ret.add(Pair.of(poolWeight * entry.getValue(), subset));
+        }
+        return ret;
+    }
+
+    /**
+     * @return subsets of up to k out of n members, or more than {@link #MAX_SUBSETS}
+     */
+    private long subsets(int n) {
+        long total = 0;
+        long level = 1;
+        for (int j = 0; j <= k && total <= MAX_SUBSETS; j++) {
+            total += level;
+            level = level * (n - j) / (j + 1);
+        }
+        return total;
+    }
+
+    /**
+     * Probability of every k subset under successive weighted draws without replacement,
+     * one bit per member. Only subsets of up to k members are visited, one size at a time,
+     * so the cost follows the number of subsets and not 2^n.
+     *
+     * @return probability by subset mask, in increasing mask order
+     */
+    private Map<Long, Double> exact(double[] weights) {
+        int n = weights.length;
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        TreeMap<Long, Double> probability = new TreeMap<>();
+        TreeMap<Long, Double> taken = new TreeMap<>();
+        probability.put(0L, 1.0);
+        taken.put(0L, 0.0);
+        for (int size = 0; size < k; size++) {
+            TreeMap<Long, Double> nextProbability = new TreeMap<>();
+            TreeMap<Long, Double> nextTaken = new TreeMap<>();
+            for (Map.Entry<Long, Double> entry : probability.entrySet()) {
+                long mask = entry.getKey();
+                double sofar = taken.get(mask);
+                double rest = total - sofar;
+                for (int j = 0; j < n; j++) {
+                    long next = mask | 1L << j;
+                    if (next != mask) {
+                        nextProbability.merge(next, entry.getValue() * weights[j] / rest, Double::sum);
+                        nextTaken.put(next, sofar + weights[j]);
+                    }
+                }
+            }
+            probability = nextProbability;
+            taken = nextTaken;
+        }
+        return probability;
+    }
+
+    private static List<String> dspKeys(List<TrafficRule> rules) {
+        List<String> ret = new ArrayList<>(rules.size());
+        rules.forEach(tr -> ret.add(tr.dspKey));
+        return ret;
+    }
+}
@@ -0,0 +1,88 @@
+package me.tony.practice.common.weight;
+
+import me.tony.practice.common.Base;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static me.tony.practice.common.weight.TrafficRule.nonexclusive;
+import static org.junit.Assert.*;
+
+public class PoolPolicyTest extends Base {
+
+    private static List<TrafficRule> pool(double... weights) {
+        List<TrafficRule> pool = new ArrayList<>();
+        for (int i = 0; i < weights.length; i++) {
+            pool.add(nonexclusive("tag", "dsp" + i, weights[i]));
+        }
+        return pool;
+    }
+
+    @Test
+    public void allKeepsZeroWeightMembers() {
+        List<Pair<Double, List<String>>> expanded = PoolPolicy.ALL.expand("tag", 0.5, pool(3, 0, 1, 0));
+        assertEquals(1, expanded.size());
+        assertEquals(0.5, expanded.get(0).getLeft(), 0);
+        assertEquals(Arrays.asList("dsp0", "dsp1", "dsp2", "dsp3"), expanded.get(0).getRight());
+    }
+
+    @Test
+    public void topKTakesTheHeaviest() {
+        List<Pair<Double, List<String>>> expanded = PoolPolicy.topK(2).expand("tag", 1, pool(1, 5, 0, 3));
+        assertEquals(1, expanded.size());
+        assertEquals(new HashSet<>(Arrays.asList("dsp1", "dsp3")), new HashSet<>(expanded.get(0).getRight()));
+    }
+
+    /**
+     * Pools past the size the old sampled approximation kicked in at still get the exact
+     * probability of every pair: w_i / W * w_j / (W - w_i) + w_j / W * w_i / (W - w_j).
+     */
+    @Test
+    public void sampleKIsExactOnLargePools() {
+        double[] weights = new double[24];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = 1 + i % 5;
+            total += weights[i];
+        }
+        List<Pair<Double, List<String>>> expanded = PoolPolicy.sampleK(2).expand("tag", 0.8, pool(weights));
+        assertEquals(weights.length * (weights.length - 1) / 2, expanded.size());
+        Map<List<String>, Double> byPair = new HashMap<>();
+        double sum = 0;
+        for (Pair<Double, List<String>> slot : expanded) {
+            byPair.put(slot.getRight(), slot.getLeft());
+            sum += slot.getLeft();
+        }
+        assertEquals(0.8, sum, 1e-12);
+        for (int i = 0; i < weights.length; i++) {
+            for (int j = i + 1; j < weights.length; j++) {
+                double wi = weights[i];
+                double wj = weights[j];
+                double expected = wi / total * wj / (total - wi) + wj / total * wi / (total - wj);
+                assertEquals(0.8 * expected, byPair.get(Arrays.asList("dsp" + i, "dsp" + j)), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void sampleKDropsZeroWeightMembers() {
+        List<Pair<Double, List<String>>> expanded = PoolPolicy.sampleK(2).expand("tag", 1, pool(1, 0, 1, 2));
+        for (Pair<Double, List<String>> slot : expanded) {
+            assertFalse(slot.getRight().contains("dsp1"));
+        }
+        assertEquals(3, expanded.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sampleKRefusesTooManySubsets() {
+        double[] weights = new double[40];
+        Arrays.fill(weights, 1);
+        PoolPolicy.sampleK(5).expand("tag", 1, pool(weights));
+    }
+}
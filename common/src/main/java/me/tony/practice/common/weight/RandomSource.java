@@ -0,0 +1,48 @@
+package me.tony.practice.common.weight;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Where {@link WeightedSelector} draws its uniform doubles from.
+ */
+@FunctionalInterface
+interface RandomSource {
+
+    /**
+     * @return uniform in [0, 1)
+     */
+    double nextDouble();
+
+    /**
+     * Default source, no state shared between threads.
+     */
+    static RandomSource threadLocal() {
+        return () -> ThreadLocalRandom.current().nextDouble();
+    }
+
+    /**
+     * Every worker thread gets its own {@link SplittableRandom} split off one root,
+     * so a run is reproducible per thread once the root seed is fixed.
+     */
+    static RandomSource splittable(long seed) {
+        final SplittableRandom root = new SplittableRandom(seed);
+        final ThreadLocal<SplittableRandom> local = ThreadLocal.withInitial(() -> {
+            synchronized (root) {
+                return root.split();
+            }
+        });
+        return () -> local.get().nextDouble();
+    }
+
+    /**
+     * One seeded {@link Random} shared by every caller, for single threaded replay tests.
+     * Under concurrency the sequence is still valid but no longer reproducible, and the
+     * shared seed becomes a contention point.
+     */
+    static RandomSource seeded(long seed) {
+        final Random random = new Random(seed);
+        return random::nextDouble;
+    }
+}
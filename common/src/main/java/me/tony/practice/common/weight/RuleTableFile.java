@@ -0,0 +1,218 @@
+package me.tony.practice.common.weight;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Compact binary form of compiled alias tables, so a new generation loads from a
+ * memory mapped file without regrouping rules or boxing weights.
+ * <pre>
+ * int    magic, int version
+ * int    target count, then per target: int length, utf-8 bytes
+ * int    tag count, then per tag:
+ *        int length, utf-8 bytes of the tag id
+ *        int slot count n
+ *        double[n] probability, int[n] alias, double[n] cumulative
+ *        per slot: int group size, int[] target indexes
+ *        per slot: int guarded, then if 1: long from, long to, double qps cap
+ * </pre>
+ * Targets are stored once and shared by every slot naming them.
+ */
+final class RuleTableFile {
+
+    static final int MAGIC = 0x57525431;
+    static final int VERSION = 2;
+    // least a slot takes: probability, alias, cumulative, a group of one and no guard
+    private static final int SLOT_BYTES = Double.BYTES + Integer.BYTES + Double.BYTES + 2 * Integer.BYTES + Integer.BYTES;
+
+    private RuleTableFile() {
+    }
+
+    static void write(Map<String, AliasTable> tables, Path path) throws IOException {
+        Map<String, Integer> targetIds = new LinkedHashMap<>();
+        for (AliasTable table : tables.values()) {
+            for (List<String> group : table.targets) {
+                for (String target : group) {
+                    targetIds.putIfAbsent(target, targetIds.size());
+                }
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(targetIds.size());
+            for (String target : targetIds.keySet()) {
+                writeString(out, target);
+            }
+            out.writeInt(tables.size());
+            for (Map.Entry<String, AliasTable> entry : tables.entrySet()) {
+                AliasTable table = entry.getValue();
+                int size = table.size();
+                writeString(out, entry.getKey());
+                out.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    out.writeDouble(table.probability[i]);
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(table.alias[i]);
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeDouble(table.cumulative[i]);
+                }
+                for (List<String> group : table.targets) {
+                    out.writeInt(group.size());
+                    for (String target : group) {
+                        out.writeInt(targetIds.get(target));
+                    }
+                }
+                for (int i = 0; i < size; i++) {
+                    SlotGuard guard = table.guards == null ? null : table.guards[i];
+                    out.writeInt(guard == null ? 0 : 1);
+                    if (guard != null) {
+                        out.writeLong(guard.from);
+                        out.writeLong(guard.to);
+                        out.writeDouble(guard.pacer == null ? 0 : guard.pacer.qps);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param service hands out the pacers of capped dsps
+     * @throws IOException if the file is not a rule table, or is truncated or inconsistent
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, AliasTable> read(Path path, TrafficRuleService service) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("not a rule table: " + path);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported rule table version " + version + ": " + path);
+        }
+        int targetCount = count(buffer, Integer.BYTES, path);
+        String[] targets = new String[targetCount];
+        List<String>[] singles = (List<String>[]) new List<?>[targetCount];
+        for (int i = 0; i < targetCount; i++) {
+            targets[i] = readString(buffer, path);
+            singles[i] = Collections.singletonList(targets[i]);
+        }
+        int tagCount = count(buffer, Integer.BYTES, path);
+        Map<String, AliasTable> tables = new HashMap<>(tagCount * 2);
+        for (int t = 0; t < tagCount; t++) {
+            String tagId = readString(buffer, path);
+            int size = count(buffer, SLOT_BYTES, path);
+            if (size == 0) {
+                throw corrupt(path, "tag " + tagId + " has no slots");
+            }
+            double[] probability = new double[size];
+            int[] alias = new int[size];
+            double[] cumulative = new double[size];
+            buffer.asDoubleBuffer().get(probability);
+            buffer.position(buffer.position() + size * Double.BYTES);
+            buffer.asIntBuffer().get(alias);
+            buffer.position(buffer.position() + size * Integer.BYTES);
+            buffer.asDoubleBuffer().get(cumulative);
+            buffer.position(buffer.position() + size * Double.BYTES);
+            for (int i = 0; i < size; i++) {
+                if (alias[i] < 0 || alias[i] >= size) {
+                    throw corrupt(path, "tag " + tagId + " aliases slot " + alias[i] + " of " + size);
+                }
+            }
+            List<String>[] groups = (List<String>[]) new List<?>[size];
+            for (int i = 0; i < size; i++) {
+                int groupSize = count(buffer, Integer.BYTES, path);
+                if (groupSize == 0) {
+                    throw corrupt(path, "tag " + tagId + " has an empty slot");
+                }
+                if (groupSize == 1) {
+                    groups[i] = singles[target(buffer, targetCount, path)];
+                } else {
+                    String[] group = new String[groupSize];
+                    for (int j = 0; j < groupSize; j++) {
+                        group[j] = targets[target(buffer, targetCount, path)];
+                    }
+                    groups[i] = Collections.unmodifiableList(Arrays.asList(group));
+                }
+            }
+            SlotGuard[] guards = null;
+            for (int i = 0; i < size; i++) {
+                require(buffer, Integer.BYTES, path);
+                int guarded = buffer.getInt();
+                if (guarded == 1) {
+                    require(buffer, 2 * Long.BYTES + Double.BYTES, path);
+                    if (guards == null) {
+                        guards = new SlotGuard[size];
+                    }
+                    guards[i] = service.guard(groups[i].get(0), buffer.getLong(), buffer.getLong(), buffer.getDouble());
+                } else if (guarded != 0) {
+                    throw corrupt(path, "tag " + tagId + " has a bad guard flag " + guarded);
+                }
+            }
+            tables.put(tagId, new AliasTable(probability, alias, cumulative, groups, guards));
+        }
+        if (buffer.hasRemaining()) {
+            throw corrupt(path, buffer.remaining() + " trailing bytes");
+        }
+        return tables;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer, Path path) throws IOException {
+        byte[] bytes = new byte[count(buffer, 1, path)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a count and checks that the rest of the file can hold that many items of at
+     * least {@code minBytes} each, so a corrupt count fails here instead of allocating.
+     */
+    private static int count(ByteBuffer buffer, int minBytes, Path path) throws IOException {
+        require(buffer, Integer.BYTES, path);
+        int count = buffer.getInt();
+        if (count < 0) {
+            throw corrupt(path, "negative count " + count);
+        }
+        require(buffer, (long) count * minBytes, path);
+        return count;
+    }
+
+    private static int target(ByteBuffer buffer, int targetCount, Path path) throws IOException {
+        require(buffer, Integer.BYTES, path);
+        int target = buffer.getInt();
+        if (target < 0 || target >= targetCount) {
+            throw corrupt(path, "target " + target + " of " + targetCount);
+        }
+        return target;
+    }
+
+    private static void require(ByteBuffer buffer, long bytes, Path path) throws IOException {
+        if (bytes > buffer.remaining()) {
+            throw corrupt(path, "truncated");
+        }
+    }
+
+    private static IOException corrupt(Path path, String reason) {
+        return new IOException("corrupt rule table " + path + ": " + reason);
+    }
+}
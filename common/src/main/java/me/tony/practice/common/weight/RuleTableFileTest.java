@@ -0,0 +1,132 @@
+package me.tony.practice.common.weight;
+
+import me.tony.practice.common.Base;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static me.tony.practice.common.weight.TrafficRule.exclusive;
+import static me.tony.practice.common.weight.TrafficRule.nonexclusive;
+import static org.junit.Assert.*;
+
+public class RuleTableFileTest extends Base {
+
+    private final TrafficRuleService service = new TrafficRuleService();
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException {
+        path = Files.createTempFile("rule-table", ".bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        service.close();
+        Files.deleteIfExists(path);
+    }
+
+    private static List<TrafficRule> rules() {
+        return Arrays.asList(
+                exclusive("tag-a", "a1", 0.2).flight(1000, 2000),
+                exclusive("tag-a", "shared", 0.3).capped(500),
+                nonexclusive("tag-a", "a3"),
+                nonexclusive("tag-a", "a4"),
+                exclusive("tag-b", "shared", 0.5),
+                nonexclusive("tag-b", "b2"),
+                exclusive("tag-标签", "c1", 1.0));
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        Map<String, AliasTable> written = service.compile(rules());
+        RuleTableFile.write(written, path);
+        Map<String, AliasTable> read = RuleTableFile.read(path, service);
+        assertEquals(written.keySet(), read.keySet());
+        for (Map.Entry<String, AliasTable> entry : written.entrySet()) {
+            String tagId = entry.getKey();
+            AliasTable expected = entry.getValue();
+            AliasTable actual = read.get(tagId);
+            assertArrayEquals(tagId, expected.probability, actual.probability, 0);
+            assertArrayEquals(tagId, expected.alias, actual.alias);
+            assertArrayEquals(tagId, expected.cumulative, actual.cumulative, 0);
+            assertArrayEquals(tagId, expected.targets, actual.targets);
+            assertEquals(tagId, expected.guards == null, actual.guards == null);
+            for (int i = 0; expected.guards != null && i < expected.size(); i++) {
+                SlotGuard want = expected.guards[i];
+                SlotGuard got = actual.guards[i];
+                if (want == null) {
+                    assertNull(got);
+                    continue;
+                }
+                assertEquals(want.from, got.from);
+                assertEquals(want.to, got.to);
+                // the same dsp keeps the same pacer
+                assertSame(want.pacer, got.pacer);
+            }
+        }
+    }
+
+    @Test
+    public void selectorLoadsWhatServiceWrote() throws IOException {
+        service.write(rules(), path);
+        try (WeightedSelector selector = new WeightedSelector()) {
+            selector.load(path);
+            assertEquals(Arrays.asList("c1"), selector.selectDsp("tag-标签"));
+            assertEquals(1, selector.selectDsp("tag-b").size());
+        }
+    }
+
+    /**
+     * Every strict prefix of a valid file has to be refused with an IOException.
+     */
+    @Test
+    public void truncatedFilesAreRefused() throws IOException {
+        RuleTableFile.write(service.compile(rules()), path);
+        byte[] bytes = Files.readAllBytes(path);
+        for (int length = 0; length < bytes.length; length++) {
+            Files.write(path, Arrays.copyOf(bytes, length));
+            try {
+                RuleTableFile.read(path, service);
+                fail("read " + length + " of " + bytes.length + " bytes");
+            } catch (IOException expected) {
+                // refused
+            }
+        }
+    }
+
+    @Test
+    public void corruptCountsAreRefused() throws IOException {
+        RuleTableFile.write(service.compile(rules()), path);
+        byte[] bytes = Files.readAllBytes(path);
+        // the target count, then the length of the first target
+        for (int offset : new int[]{8, 12}) {
+            for (int value : new int[]{-1, Integer.MAX_VALUE}) {
+                byte[] corrupt = bytes.clone();
+                ByteBuffer.wrap(corrupt).putInt(offset, value);
+                Files.write(path, corrupt);
+                try {
+                    RuleTableFile.read(path, service);
+                    fail("read a count of " + value + " at " + offset);
+                } catch (IOException expected) {
+                    // refused
+                }
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void trailingBytesAreRefused() throws IOException {
+        RuleTableFile.write(service.compile(rules()), path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length + 4));
+        RuleTableFile.read(path, service);
+    }
+}
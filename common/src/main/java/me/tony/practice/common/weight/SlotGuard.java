@@ -0,0 +1,45 @@
+package me.tony.practice.common.weight;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flight window and optional qps cap of one exclusive slot.
+ * The window is translated to {@link System#nanoTime()} once, so an admission check reads
+ * a single clock; wall clock jumps are picked up at the next rebuild.
+ */
+final class SlotGuard {
+
+    final long from;
+    final long to;
+    final Pacer pacer;
+    private final long fromNanos;
+    private final long toNanos;
+
+    /**
+     * @param from  epoch millis the slot starts serving, inclusive
+     * @param to    epoch millis the slot stops serving, exclusive
+     * @param pacer null when the dsp has no cap
+     */
+    SlotGuard(long from, long to, Pacer pacer) {
+        this.from = from;
+        this.to = to;
+        this.pacer = pacer;
+        long millis = System.currentTimeMillis();
+        long nanos = System.nanoTime();
+        this.fromNanos = from <= 0 ? Long.MIN_VALUE : toNanos(nanos, from - millis);
+        this.toNanos = to == Long.MAX_VALUE ? Long.MAX_VALUE : toNanos(nanos, to - millis);
+    }
+
+    private static long toNanos(long nanos, long offsetMillis) {
+        long limit = TimeUnit.NANOSECONDS.toMillis(Long.MAX_VALUE / 2);
+        return nanos + TimeUnit.MILLISECONDS.toNanos(Math.max(-limit, Math.min(limit, offsetMillis)));
+    }
+
+    boolean admit(RandomSource random) {
+        long now = System.nanoTime();
+        if (now < fromNanos || now >= toNanos) {
+            return false;
+        }
+        return pacer == null || pacer.admit(now, random);
+    }
+}
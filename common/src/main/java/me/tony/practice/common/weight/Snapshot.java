@@ -0,0 +1,106 @@
+package me.tony.practice.common.weight;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One immutable generation of {@link WeightedSelector} config.
+ * Pin it with {@link WeightedSelector#snapshot()} to make several selections
+ * inside one request against the same generation.
+ */
+final class Snapshot {
+
+    static final int NONE = AliasTable.NONE;
+
+    final long generation;
+    final TagDictionary tags;
+    final AliasTable[] tables;
+    final RandomSource random;
+
+    Snapshot(long generation, TagDictionary tags, AliasTable[] tables, RandomSource random) {
+        this.generation = generation;
+        this.tags = tags;
+        this.tables = tables;
+        this.random = random;
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    AliasTable table(int tagId) {
+        return tagId < 0 || tagId >= tables.length ? null : tables[tagId];
+    }
+
+    List<String> selectDsp(String tagId) {
+        return selectDsp(tags.id(tagId));
+    }
+
+    List<String> selectDsp(int tagId) {
+        AliasTable table = table(tagId);
+        if (table == null) {
+            return Collections.emptyList();
+        }
+        return table.select(random);
+    }
+
+    /**
+     * Sticky selection: the same key always lands on the same targets while the
+     * tag's weights stay the same, and keys still split by the configured weights.
+     */
+    List<String> selectDsp(String tagId, CharSequence key) {
+        return selectDsp(tags.id(tagId), KeyHash.hash(key));
+    }
+
+    /**
+     * @param keyHash a {@link KeyHash#hash(CharSequence)} the caller already computed
+     */
+    List<String> selectDsp(int tagId, long keyHash) {
+        AliasTable table = table(tagId);
+        if (table == null) {
+            return Collections.emptyList();
+        }
+        return table.targets(table.locate(KeyHash.unit(keyHash), random));
+    }
+
+    /**
+     * Selects for every tag in one pass, filling {@code out[i]} with the slot picked
+     * for {@code tagIds[i]}, or {@link #NONE} if the tag has no config or nothing was admitted.
+     * Resolve a slot with {@link #targets(int, int)} on this same snapshot.
+     */
+    void selectDsp(int[] tagIds, int[] out) {
+        checkBatch(tagIds.length, out.length);
+        RandomSource random = this.random;
+        for (int i = 0; i < tagIds.length; i++) {
+            AliasTable table = table(tagIds[i]);
+            out[i] = table == null ? NONE : table.sample(random);
+        }
+    }
+
+    void selectDsp(String[] tagIds, int[] out) {
+        checkBatch(tagIds.length, out.length);
+        RandomSource random = this.random;
+        for (int i = 0; i < tagIds.length; i++) {
+            AliasTable table = table(tags.id(tagIds[i]));
+            out[i] = table == null ? NONE : table.sample(random);
+        }
+    }
+
+    List<String> targets(int tagId, int slot) {
+        AliasTable table = table(tagId);
+        if (table == null) {
+            return Collections.emptyList();
+        }
+        return table.targets(slot);
+    }
+
+    List<String> targets(String tagId, int slot) {
+        return targets(tags.id(tagId), slot);
+    }
+
+    private static void checkBatch(int tags, int out) {
+        if (out < tags) {
+            throw new IllegalArgumentException("out holds " + out + " slots for " + tags + " tags");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package me.tony.practice.common.weight;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense int ids to tag strings.
+ * Ids are append only and never reused, so an id resolved by an upstream
+ * caller stays valid across refreshes.
+ */
+final class TagDictionary {
+
+    static final int UNKNOWN = -1;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private volatile int size;
+
+    int id(String tagId) {
+        Integer id = ids.get(tagId);
+        return id == null ? UNKNOWN : id;
+    }
+
+    synchronized int intern(String tagId) {
+        Integer id = ids.get(tagId);
+        if (id != null) {
+            return id;
+        }
+        int next = size;
+        if (next == names.length) {
+            names = Arrays.copyOf(names, next * 2);
+        }
+        names[next] = tagId;
+        ids.put(tagId, next);
+        size = next + 1;
+        return next;
+    }
+
+    String name(int id) {
+        return id < 0 || id >= size ? null : names[id];
+    }
+
+    int size() {
+        return size;
+    }
+}
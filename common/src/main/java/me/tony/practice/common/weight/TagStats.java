@@ -0,0 +1,65 @@
+package me.tony.practice.common.weight;
+
+import java.util.List;
+
+/**
+ * Realized against configured split of one tag, counted since its table was last rebuilt.
+ */
+final class TagStats {
+
+    final String tagId;
+    final long generation;
+    final List<String>[] targets;
+    final double[] configured;
+    final long[] hits;
+    final long total;
+
+    private TagStats(String tagId, long generation, List<String>[] targets, double[] configured, long[] hits) {
+        this.tagId = tagId;
+        this.generation = generation;
+        this.targets = targets;
+        this.configured = configured;
+        this.hits = hits;
+        long sum = 0;
+        for (long hit : hits) {
+            sum += hit;
+        }
+        this.total = sum;
+    }
+
+    static TagStats of(String tagId, long generation, AliasTable table) {
+        int size = table.size();
+        double[] configured = new double[size];
+        long[] hits = new long[size];
+        for (int i = 0; i < size; i++) {
+            configured[i] = table.share(i);
+            hits[i] = table.hits[i].sum();
+        }
+        return new TagStats(tagId, generation, table.targets, configured, hits);
+    }
+
+    double realized(int slot) {
+        return total == 0 ? 0 : (double) hits[slot] / total;
+    }
+
+    /**
+     * @return largest absolute gap between realized and configured share over all slots
+     */
+    double drift() {
+        double max = 0;
+        for (int i = 0; i < hits.length; i++) {
+            max = Math.max(max, Math.abs(realized(i) - configured[i]));
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(tagId).append(" total=").append(total);
+        for (int i = 0; i < hits.length; i++) {
+            sb.append(' ').append(targets[i]).append('=').append(hits[i])
+                    .append(String.format("(%.4f/%.4f)", realized(i), configured[i]));
+        }
+        return sb.append(String.format(" drift=%.4f", drift())).toString();
+    }
+}
@@ -0,0 +1,61 @@
+package me.tony.practice.common.weight;
+
+/**
+ * One dsp of one tag: either exclusive with its own share of the tag's traffic, or a member
+ * of the tag's non-exclusive bidding pool, see {@link PoolPolicy}.
+ */
+class TrafficRule {
+    String tagId;
+    String dspKey;
+    Boolean exclusive;
+    Double weight;
+    // flight window in epoch millis and qps cap of the dsp, only honoured on exclusive rules
+    long from = 0;
+    long to = Long.MAX_VALUE;
+    double qpsCap = 0;
+
+    static TrafficRule exclusive(String tagId, String dspKey, double weight) {
+        TrafficRule ret = new TrafficRule();
+        ret.tagId = tagId;
+        ret.dspKey = dspKey;
+        ret.exclusive = true;
+        ret.weight = weight;
+        return ret;
+    }
+
+    static TrafficRule nonexclusive(String tagId, String dspKey) {
+        return nonexclusive(tagId, dspKey, 0.0);
+    }
+
+    /**
+     * @param weight rank of the dsp inside the bidding pool, see {@link PoolPolicy}
+     */
+    static TrafficRule nonexclusive(String tagId, String dspKey, double weight) {
+        TrafficRule ret = new TrafficRule();
+        ret.tagId = tagId;
+        ret.dspKey = dspKey;
+        ret.exclusive = false;
+        ret.weight = weight;
+        return ret;
+    }
+
+    TrafficRule flight(long from, long to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    /**
+     * Caps the dsp at qps requests per second, summed over every tag routing to it.
+     * There is no cap on a total budget; to spend one evenly over a flight, cap the dsp at
+     * the budget divided by the flight's length in seconds.
+     */
+    TrafficRule capped(double qps) {
+        this.qpsCap = qps;
+        return this;
+    }
+
+    boolean guarded() {
+        return from > 0 || to < Long.MAX_VALUE || qpsCap > 0;
+    }
+}
@@ -0,0 +1,171 @@
+package me.tony.practice.common.weight;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Groups rules by tag, keeping their order within a tag. Rule sets below the parallel
+ * threshold are grouped on the calling thread; larger ones are partitioned on a dedicated
+ * bounded pool, so a refresh never competes with request threads for the common pool.
+ * Close the service to shut that pool down.
+ */
+class TrafficRuleService implements Closeable {
+
+    static final int PARALLEL_THRESHOLD = 8192;
+
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+    private final PoolPolicy poolPolicy;
+    // one pacer per capped dsp, kept across refreshes so a rebuild does not reset its bucket,
+    // and dropped by retainPacers once no served table caps the dsp
+    private final ConcurrentHashMap<String, Pacer> pacers = new ConcurrentHashMap<>();
+
+    TrafficRuleService() {
+        this(PoolPolicy.ALL);
+    }
+
+    TrafficRuleService(PoolPolicy poolPolicy) {
+        this(PARALLEL_THRESHOLD, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), poolPolicy);
+    }
+
+    TrafficRuleService(int parallelThreshold, int parallelism, PoolPolicy poolPolicy) {
+        this.parallelThreshold = parallelThreshold;
+        this.pool = new ForkJoinPool(parallelism);
+        this.poolPolicy = poolPolicy;
+    }
+
+    /**
+     * Compiles the rules and writes them in the format {@link WeightedSelector#load(Path)} reads.
+     */
+    void write(List<TrafficRule> data, Path path) throws IOException {
+        RuleTableFile.write(compile(data), path);
+    }
+
+    Map<String, List<Pair<Double, List<String>>>> service(List<TrafficRule> data) {
+        return build(data, this::weightedTargets);
+    }
+
+    /**
+     * Groups and compiles every tag in one pass, leaving out tags without positive weight.
+     */
+    Map<String, AliasTable> compile(List<TrafficRule> data) {
+        return build(data, this::compileTag);
+    }
+
+    private AliasTable compileTag(List<TrafficRule> tagRules) {
+        AliasTable table = AliasTable.of(weightedTargets(tagRules));
+        if (table == null) {
+            return null;
+        }
+        // exclusive rules own the leading slots, in rule order
+        SlotGuard[] guards = null;
+        int slot = 0;
+        for (TrafficRule tr : tagRules) {
+            if (!tr.exclusive) {
+                continue;
+            }
+            if (tr.guarded()) {
+                if (guards == null) {
+                    guards = new SlotGuard[table.size()];
+                }
+                guards[slot] = guard(tr.dspKey, tr.from, tr.to, tr.qpsCap);
+            }
+            slot++;
+        }
+        return guards == null ? table : table.guarded(guards);
+    }
+
+    SlotGuard guard(String dspKey, long from, long to, double qpsCap) {
+        Pacer pacer = null;
+        if (qpsCap > 0) {
+            pacer = pacers.compute(dspKey, (k, current) -> current == null ? new Pacer(qpsCap) : current.update(qpsCap));
+        }
+        return new SlotGuard(from, to, pacer);
+    }
+
+    /**
+     * Drops the pacers of dsps that no slot of the served tables is capped by any more, so dsps
+     * that have left the rules do not pile up across refreshes.
+     */
+    void retainPacers(AliasTable[] served) {
+        Set<String> capped = new HashSet<>();
+        for (AliasTable table : served) {
+            if (table == null || table.guards == null) {
+                continue;
+            }
+            for (int slot = 0; slot < table.guards.length; slot++) {
+                SlotGuard guard = table.guards[slot];
+                if (guard != null && guard.pacer != null) {
+                    // guarded slots are exclusive, one dsp each
+                    capped.add(table.targets[slot].get(0));
+                }
+            }
+        }
+        pacers.keySet().retainAll(capped);
+    }
+
+    /**
+     * @return dsps with a pacer, for tests
+     */
+    Set<String> pacedDsps() {
+        return Collections.unmodifiableSet(pacers.keySet());
+    }
+
+    private <T> Map<String, T> build(List<TrafficRule> data, Function<List<TrafficRule>, T> builder) {
+        if (data.size() < parallelThreshold) {
+            Map<String, List<TrafficRule>> mid = new LinkedHashMap<>();
+            data.forEach(tr -> mid.computeIfAbsent(tr.tagId, k -> new ArrayList<>()).add(tr));
+            Map<String, T> ret = new HashMap<>(mid.size() * 2);
+            mid.forEach((tagId, tagRules) -> {
+                T built = builder.apply(tagRules);
+                if (built != null) {
+                    ret.put(tagId, built);
+                }
+            });
+            return ret;
+        }
+        // a parallel stream started inside the pool runs on the pool instead of the common one;
+        // groupingBy merges the partial maps in encounter order, so every tag keeps its rule order
+        // and with it the order of its slots
+        return pool.submit(() -> data.parallelStream()
+                .collect(Collectors.groupingBy(tr -> tr.tagId))
+                .entrySet().parallelStream()
+                .map(entry -> Pair.of(entry.getKey(), builder.apply(entry.getValue())))
+                .filter(pair -> pair.getRight() != null)
+                .collect(Collectors.toMap(Pair::getLeft, Pair::getRight))).join();
+    }
+
+    List<Pair<Double, List<String>>> weightedTargets(List<TrafficRule> tagRules) {
+        List<Pair<Double, List<String>>> weightedTargets = new ArrayList<>();
+        List<TrafficRule> nonExclusiveTargets = new ArrayList<>();
+
+        double totalExclusiveRate = 0.0;
+        for (TrafficRule tr : tagRules) {
+            if (tr.exclusive) {
+                Pair<Double, List<String>> exclusiveOne = Pair.of(tr.weight, Collections.singletonList(tr.dspKey));
+                weightedTargets.add(exclusiveOne);
+                totalExclusiveRate += tr.weight;
+            } else {
+                nonExclusiveTargets.add(tr);
+            }
+        }
+        if (totalExclusiveRate < 1 && !nonExclusiveTargets.isEmpty()) {
+            String tagId = tagRules.get(0).tagId;
+            weightedTargets.addAll(poolPolicy.expand(tagId, 1 - totalExclusiveRate, nonExclusiveTargets));
+        }
+        return weightedTargets;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -1,20 +1,40 @@
 package me.tony.practice.common.weight;
 
 
-import org.apache.commons.lang3.tuple.Pair;
-
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 import static me.tony.practice.common.weight.TrafficRule.exclusive;
 import static me.tony.practice.common.weight.TrafficRule.nonexclusive;
 
-public class WeightedSelector {
+/**
+ * Close the selector once it is no longer refreshed, to release its {@link TrafficRuleService}.
+ */
+public class WeightedSelector implements Closeable {
+
+    final TagDictionary tags = new TagDictionary();
+    // rules behind the current tables, only touched by the synchronized refresh methods,
+    // null when the tables came from a rule table file
+    Map<String, Map<String, TrafficRule>> rules = new HashMap<>();
+    final TrafficRuleService service;
+    final RandomSource random;
+    volatile Snapshot snapshot;
+
+    WeightedSelector() {
+        this(RandomSource.threadLocal());
+    }
 
-    Map<String, NavigableMap<Double, List<String>>> configMap = Collections.emptyMap();
-    TrafficRuleService service = new TrafficRuleService();
-    Random random = new Random();
+    WeightedSelector(RandomSource random) {
+        this(random, PoolPolicy.ALL);
+    }
+
+    WeightedSelector(RandomSource random, PoolPolicy poolPolicy) {
+        this.random = random;
+        this.service = new TrafficRuleService(poolPolicy);
+        this.snapshot = new Snapshot(0, tags, new AliasTable[0], random);
+    }
 
     public static void main(String[] args) {
         List<TrafficRule> data = Arrays.asList(
@@ -29,113 +49,183 @@ public class WeightedSelector {
         WeightedSelector selector = new WeightedSelector();
         selector.refresh(data);
         int total = 100000000;
-        int aNum, bNum, gNum, bidNum;
-        aNum = bNum = gNum = bidNum = 0;
         long start = System.currentTimeMillis();
         for (int i = 0; i < total; i++) {
-            List<String> target = selector.selectDsp("1.1.z.1");
-            if (target.contains("a")) {
-                aNum++;
-            } else if (target.contains("b")) {
-                bNum++;
-            } else if (target.contains("g")) {
-                gNum++;
-            } else {
-                bidNum++;
-            }
+            selector.selectDsp("1.1.z.1");
         }
         System.out.println(System.currentTimeMillis() - start);
-        System.out.println(aNum);
-        System.out.println(bNum);
-        System.out.println(gNum);
-        System.out.println(bidNum);
+        selector.stats().forEach(System.out::println);
     }
 
-    void refresh(List<TrafficRule> data) {
-        Map<String, List<Pair<Double, List<String>>>> dataMap = this.service.service(data);
-        if (dataMap.isEmpty()) {
+    synchronized void refresh(List<TrafficRule> data) {
+        Map<String, AliasTable> compiled = this.service.compile(data);
+        if (compiled.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, TrafficRule>> tmpRules = new HashMap<>(compiled.size() * 2);
+        data.forEach(tr -> tmpRules.computeIfAbsent(tr.tagId, k -> new LinkedHashMap<>()).put(tr.dspKey, tr));
+        rules = tmpRules;
+        publish(compiled);
+    }
+
+    /**
+     * Applies rule edits on top of the current config, rebuilding only the tags they touch.
+     * A rule is identified by its tagId and dspKey; upserting a known pair replaces it.
+     * Tables of untouched tags are shared with the previous config.
+     * The edits go to copies of the touched tags' rules, which replace the current ones only
+     * once they compile, so a failed refresh leaves rules and tables as they were.
+     */
+    synchronized void refresh(Collection<TrafficRule> upserts, Collection<TrafficRule> removals) {
+        if (rules == null) {
+            throw new IllegalStateException("config was loaded from a rule table file, refresh with the full rule list first");
+        }
+        Map<String, Map<String, TrafficRule>> edited = new HashMap<>();
+        Set<String> affected = new HashSet<>();
+        for (TrafficRule tr : removals) {
+            if (edited(edited, tr.tagId).remove(tr.dspKey) != null) {
+                affected.add(tr.tagId);
+            }
+        }
+        for (TrafficRule tr : upserts) {
+            edited(edited, tr.tagId).put(tr.dspKey, tr);
+            affected.add(tr.tagId);
+        }
+        if (affected.isEmpty()) {
             return;
         }
-        Map<String, NavigableMap<Double, List<String>>> tmpConfigMap = dataMap.entrySet().parallelStream()
-                .collect(Collectors.toConcurrentMap(Map.Entry::getKey, entry -> {
-                    final NavigableMap<Double, List<String>> weightedMap = new TreeMap<>();
-                    // never never use parallelStream instead
-                    // for weightedMap is changed in each step
-                    // and will effect next step
-                    // so call side effect
-                    entry.getValue().forEach(pair -> {
-                        double lastWeight = weightedMap.isEmpty() ? 0 : weightedMap.lastKey();
-                        weightedMap.put(pair.getLeft() + lastWeight, pair.getRight());
-                    });
-                    return Collections.unmodifiableNavigableMap(weightedMap);
-                }));
-        if (!tmpConfigMap.isEmpty()) {
-            configMap = tmpConfigMap;
+        List<TrafficRule> affectedRules = new ArrayList<>();
+        for (String tagId : affected) {
+            affectedRules.addAll(edited.get(tagId).values());
+        }
+        Map<String, AliasTable> compiled = this.service.compile(affectedRules);
+        for (String tagId : affected) {
+            Map<String, TrafficRule> tagRules = edited.get(tagId);
+            if (tagRules.isEmpty()) {
+                rules.remove(tagId);
+            } else {
+                rules.put(tagId, tagRules);
+            }
+            tags.intern(tagId);
+        }
+        AliasTable[] tmpTables = Arrays.copyOf(snapshot.tables, tags.size());
+        for (String tagId : affected) {
+            tmpTables[tags.id(tagId)] = compiled.get(tagId);
         }
+        publish(tmpTables);
     }
 
-    List<String> selectDsp(String tagId) {
-        if (!configMap.containsKey(tagId)) {
-            return Collections.emptyList();
+    /**
+     * @return the tag's rules as edited so far, a copy of the current ones on first touch
+     */
+    private Map<String, TrafficRule> edited(Map<String, Map<String, TrafficRule>> edited, String tagId) {
+        return edited.computeIfAbsent(tagId, k -> {
+            Map<String, TrafficRule> current = rules.get(k);
+            return current == null ? new LinkedHashMap<>() : new LinkedHashMap<>(current);
+        });
+    }
+
+    private void publish(Map<String, AliasTable> compiled) {
+        compiled.keySet().forEach(tags::intern);
+        AliasTable[] tmpTables = new AliasTable[tags.size()];
+        compiled.forEach((tagId, table) -> tmpTables[tags.id(tagId)] = table);
+        publish(tmpTables);
+    }
+
+    private void publish(AliasTable[] tmpTables) {
+        snapshot = new Snapshot(snapshot.generation + 1, tags, tmpTables, random);
+        service.retainPacers(tmpTables);
+    }
+
+    /**
+     * Replaces the config with the tables of a file written by {@link TrafficRuleService#write(List, Path)}.
+     */
+    synchronized void load(Path path) throws IOException {
+        Map<String, AliasTable> loaded = RuleTableFile.read(path, service);
+        if (loaded.isEmpty()) {
+            return;
         }
-        NavigableMap<Double, List<String>> weightedConfig = configMap.get(tagId);
-        double randomWeight = weightedConfig.lastKey() * random.nextDouble();
-        NavigableMap<Double, List<String>> tailMap = weightedConfig.tailMap(randomWeight, false);
-        return weightedConfig.get(tailMap.firstKey());
+        rules = null;
+        publish(loaded);
     }
-}
 
-class TrafficRuleService {
-    Map<String, List<Pair<Double, List<String>>>> service(List<TrafficRule> data) {
-        Map<String, List<TrafficRule>> mid = data.parallelStream().collect(Collectors.groupingByConcurrent(tr -> tr.tagId));
-        final Map<String, List<Pair<Double, List<String>>>> ret = new ConcurrentHashMap<>();
-        mid.entrySet().parallelStream().forEach(entry -> {
-            String tagId = entry.getKey();
-            if (!ret.containsKey(tagId)) {
-                ret.put(tagId, new ArrayList<>());
-            }
-            List<Pair<Double, List<String>>> weightedTargets = ret.get(tagId);
-            List<String> nonExclusiveTargets = new ArrayList<>();
-
-            double totalExclusiveRate = 0.0;
-            for (TrafficRule tr : entry.getValue()) {
-                if (tr.exclusive) {
-                    Pair<Double, List<String>> exclusiveOne = Pair.of(tr.weight, Collections.singletonList(tr.dspKey));
-                    weightedTargets.add(exclusiveOne);
-                    totalExclusiveRate += tr.weight;
-                } else {
-                    nonExclusiveTargets.add(tr.dspKey);
-                }
-            }
-            if (totalExclusiveRate < 1 && !nonExclusiveTargets.isEmpty()) {
-                weightedTargets.add(Pair.of(1 - totalExclusiveRate, nonExclusiveTargets));
+    /**
+     * @return the id to pass to {@link #selectDsp(int)}, or {@link TagDictionary#UNKNOWN}
+     */
+    int tagId(String tagId) {
+        return tags.id(tagId);
+    }
+
+    /**
+     * @return generation of the config currently served, bumped by every refresh that changes it
+     */
+    long generation() {
+        return snapshot.generation;
+    }
+
+    /**
+     * Pins the current config; selections made on the returned snapshot all see the
+     * same generation, however many refreshes happen meanwhile.
+     */
+    Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return per tag selection counters of the current generation
+     */
+    List<TagStats> stats() {
+        Snapshot current = snapshot;
+        List<TagStats> stats = new ArrayList<>();
+        for (int id = 0; id < current.tables.length; id++) {
+            AliasTable table = current.tables[id];
+            if (table != null) {
+                stats.add(TagStats.of(tags.name(id), current.generation, table));
             }
-        });
-        return ret;
+        }
+        return stats;
+    }
+
+    /**
+     * Stops the service's pool; the tables already published keep serving.
+     */
+    @Override
+    public void close() {
+        service.close();
+    }
+
+    List<String> selectDsp(String tagId) {
+        return snapshot.selectDsp(tagId);
+    }
+
+    List<String> selectDsp(int tagId) {
+        return snapshot.selectDsp(tagId);
+    }
+
+    /**
+     * Sticky selection keyed by a device id or similar, see {@link Snapshot#selectDsp(String, CharSequence)}.
+     */
+    List<String> selectDsp(String tagId, CharSequence key) {
+        return snapshot.selectDsp(tagId, key);
+    }
+
+    List<String> selectDsp(int tagId, long keyHash) {
+        return snapshot.selectDsp(tagId, keyHash);
+    }
+
+    /**
+     * Batch selection for a request with several impressions, see {@link Snapshot#selectDsp(int[], int[])}.
+     *
+     * @return the snapshot the slots in {@code out} belong to
+     */
+    Snapshot selectDsp(int[] tagIds, int[] out) {
+        Snapshot current = snapshot;
+        current.selectDsp(tagIds, out);
+        return current;
     }
-}
 
-class TrafficRule {
-    String tagId;
-    String dspKey;
-    Boolean exclusive;
-    Double weight;
-
-    static TrafficRule exclusive(String tagId, String dspKey, double weight) {
-        TrafficRule ret = new TrafficRule();
-        ret.tagId = tagId;
-        ret.dspKey = dspKey;
-        ret.exclusive = true;
-        ret.weight = weight;
-        return ret;
-    }
-
-    static TrafficRule nonexclusive(String tagId, String dspKey) {
-        TrafficRule ret = new TrafficRule();
-        ret.tagId = tagId;
-        ret.dspKey = dspKey;
-        ret.exclusive = false;
-        ret.weight = 0.0;
-        return ret;
+    Snapshot selectDsp(String[] tagIds, int[] out) {
+        Snapshot current = snapshot;
+        current.selectDsp(tagIds, out);
+        return current;
     }
 }
@@ -0,0 +1,168 @@
+package me.tony.practice.common.weight;
+
+import me.tony.practice.common.Base;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static me.tony.practice.common.weight.TrafficRule.exclusive;
+import static me.tony.practice.common.weight.TrafficRule.nonexclusive;
+import static org.junit.Assert.*;
+
+public class WeightedSelectorTest extends Base {
+
+    private static List<TrafficRule> initialRules() {
+        return new ArrayList<>(Arrays.asList(
+                exclusive("tag-a", "a1", 0.2),
+                exclusive("tag-a", "a2", 0.3),
+                nonexclusive("tag-a", "a3"),
+                nonexclusive("tag-a", "a4"),
+                exclusive("tag-b", "b1", 0.5),
+                nonexclusive("tag-b", "b2"),
+                exclusive("tag-c", "c1", 1.0),
+                exclusive("tag-d", "d1", 0.4),
+                nonexclusive("tag-d", "d2")
+        ));
+    }
+
+    /**
+     * A delta refresh has to leave the same tables a full refresh over the merged rules builds,
+     * upserted rules keeping their place and new ones appended, and share the untouched ones.
+     */
+    @Test
+    public void deltaRefreshMatchesFullRefresh() {
+        WeightedSelector delta = new WeightedSelector();
+        delta.refresh(initialRules());
+        AliasTable untouched = delta.snapshot().table(delta.tagId("tag-d"));
+
+        List<TrafficRule> upserts = Arrays.asList(
+                exclusive("tag-a", "a2", 0.1),
+                nonexclusive("tag-a", "a5"),
+                exclusive("tag-e", "e1", 0.6),
+                nonexclusive("tag-e", "e2"));
+        List<TrafficRule> removals = Arrays.asList(
+                nonexclusive("tag-a", "a3"),
+                exclusive("tag-c", "c1", 0),
+                nonexclusive("tag-b", "unknown"));
+        delta.refresh(upserts, removals);
+
+        List<TrafficRule> merged = initialRules();
+        merged.set(1, upserts.get(0));
+        merged.add(4, upserts.get(1));
+        merged.removeIf(tr -> tr.dspKey.equals("a3") || tr.dspKey.equals("c1"));
+        merged.addAll(upserts.subList(2, 4));
+        WeightedSelector full = new WeightedSelector();
+        full.refresh(merged);
+
+        for (String tagId : Arrays.asList("tag-a", "tag-b", "tag-c", "tag-d", "tag-e")) {
+            assertTableEquals(tagId, full.snapshot().table(full.tagId(tagId)), delta.snapshot().table(delta.tagId(tagId)));
+        }
+        assertNull(delta.snapshot().table(delta.tagId("tag-c")));
+        assertSame(untouched, delta.snapshot().table(delta.tagId("tag-d")));
+        assertEquals(2, delta.generation());
+    }
+
+    @Test
+    public void emptyDeltaKeepsGeneration() {
+        WeightedSelector selector = new WeightedSelector();
+        selector.refresh(initialRules());
+        selector.refresh(Collections.<TrafficRule>emptyList(), Collections.singletonList(nonexclusive("tag-x", "x1")));
+        assertEquals(1, selector.generation());
+    }
+
+    /**
+     * A delta whose tables fail to compile must leave the rules as well as the tables as they
+     * were, so the next delta builds on the config actually served.
+     */
+    @Test
+    public void failedDeltaChangesNothing() {
+        WeightedSelector selector = new WeightedSelector(RandomSource.threadLocal(), PoolPolicy.sampleK(2));
+        selector.refresh(initialRules());
+        Snapshot before = selector.snapshot();
+
+        List<TrafficRule> oversized = new ArrayList<>();
+        oversized.add(exclusive("tag-b", "b3", 0.1));
+        for (int i = 0; i < Long.SIZE; i++) {
+            oversized.add(nonexclusive("tag-a", "big-" + i));
+        }
+        try {
+            selector.refresh(oversized, Collections.singletonList(exclusive("tag-d", "d1", 0)));
+            fail("compiled a pool of " + Long.SIZE + " members");
+        } catch (IllegalArgumentException expected) {
+            // the pool is too large for sample-k
+        }
+        assertSame(before, selector.snapshot());
+
+        List<TrafficRule> upserts = Arrays.asList(nonexclusive("tag-a", "a5"), nonexclusive("tag-b", "b4"));
+        selector.refresh(upserts, Collections.<TrafficRule>emptyList());
+        List<TrafficRule> merged = initialRules();
+        merged.add(4, upserts.get(0));
+        merged.add(7, upserts.get(1));
+        WeightedSelector full = new WeightedSelector(RandomSource.threadLocal(), PoolPolicy.sampleK(2));
+        full.refresh(merged);
+        for (String tagId : Arrays.asList("tag-a", "tag-b", "tag-c", "tag-d")) {
+            assertTableEquals(tagId, full.snapshot().table(full.tagId(tagId)), selector.snapshot().table(selector.tagId(tagId)));
+        }
+        assertEquals(2, selector.generation());
+    }
+
+    /**
+     * Past the parallel threshold, every tag has to compile to the same slots in the same
+     * order as below it.
+     */
+    @Test
+    public void parallelGroupingKeepsRuleOrder() {
+        List<TrafficRule> data = new ArrayList<>();
+        for (int i = 0; i < 4 * TrafficRuleService.PARALLEL_THRESHOLD; i++) {
+            String tagId = "tag-" + i % 16;
+            data.add(i % 3 == 0 ? nonexclusive(tagId, "dsp-" + i) : exclusive(tagId, "dsp-" + i, 0.0001 * (1 + i % 7)));
+        }
+        try (TrafficRuleService sequentialService = new TrafficRuleService(Integer.MAX_VALUE, 1, PoolPolicy.ALL);
+             TrafficRuleService parallelService = new TrafficRuleService(1, 4, PoolPolicy.ALL)) {
+            Map<String, AliasTable> sequential = sequentialService.compile(data);
+            Map<String, AliasTable> parallel = parallelService.compile(data);
+            assertEquals(sequential.keySet(), parallel.keySet());
+            sequential.forEach((tagId, table) -> assertTableEquals(tagId, table, parallel.get(tagId)));
+        }
+    }
+
+    /**
+     * A capped dsp keeps its pacer while any tag still caps it, full or delta refresh alike.
+     */
+    @Test
+    public void pacersFollowTheRules() {
+        try (WeightedSelector selector = new WeightedSelector()) {
+            selector.refresh(Arrays.asList(
+                    exclusive("tag-a", "shared", 0.2).capped(100),
+                    nonexclusive("tag-a", "a2"),
+                    exclusive("tag-b", "shared", 0.3).capped(100),
+                    exclusive("tag-b", "b1", 0.3).capped(50)));
+            assertEquals(new HashSet<>(Arrays.asList("shared", "b1")), selector.service.pacedDsps());
+
+            selector.refresh(Collections.<TrafficRule>emptyList(), Collections.singletonList(exclusive("tag-b", "b1", 0)));
+            assertEquals(Collections.singleton("shared"), selector.service.pacedDsps());
+            selector.refresh(Collections.<TrafficRule>emptyList(), Collections.singletonList(exclusive("tag-a", "shared", 0)));
+            assertEquals(Collections.singleton("shared"), selector.service.pacedDsps());
+
+            selector.refresh(Collections.singletonList(exclusive("tag-c", "c1", 0.5)));
+            assertTrue(selector.service.pacedDsps().isEmpty());
+        }
+    }
+
+    private static void assertTableEquals(String tagId, AliasTable expected, AliasTable actual) {
+        if (expected == null) {
+            assertNull(tagId, actual);
+            return;
+        }
+        assertNotNull(tagId, actual);
+        assertArrayEquals(tagId, expected.probability, actual.probability, 0);
+        assertArrayEquals(tagId, expected.alias, actual.alias);
+        assertArrayEquals(tagId, expected.cumulative, actual.cumulative, 0);
+        assertArrayEquals(tagId, expected.targets, actual.targets);
+    }
+}